@@ -0,0 +1,14 @@
+package dev.aleiis.hintforge.assistant;
+
+import dev.aleiis.hintforge.benchmarks.FixtureProfile;
+
+/**
+ * Assistant of the fixture profile, used by the benchmarks to reach the steps
+ * shared by every assistant. It never calls a model.
+ */
+class BenchmarkAssistant extends Assistant {
+
+	BenchmarkAssistant(FixtureProfile fixture) {
+		super(fixture.getHomeFolder(), "", fixture.getProfile(), "gpt-4o-mini");
+	}
+}
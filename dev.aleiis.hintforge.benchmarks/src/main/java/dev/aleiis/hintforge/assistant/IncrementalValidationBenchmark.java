@@ -0,0 +1,67 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+
+/**
+ * Verification of a candidate insertion in a 5,000-line document: a partial
+ * reparse of the loaded baseline ({@link SyntaxVerifier#validateInsertion})
+ * against a full parse of the completed document ({@link SyntaxVerifier#validate}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalValidationBenchmark {
+
+	private static final int DOCUMENT_LINES = 5000;
+
+	@Param({ "VALID", "SYNTAX_ERROR", "UNRESOLVED" })
+	public String insertion;
+
+	private SyntaxVerifier verifier;
+	private String baseline;
+	private int offset;
+	private String fragment;
+	private String completed;
+
+	@Setup
+	public void setUp() {
+		verifier = new SyntaxVerifier(EntitiesDocuments.STANDALONE_SETUP, EntitiesDocuments.FILE_EXTENSION);
+		baseline = EntitiesDocuments.generate(DOCUMENT_LINES);
+		// Before the closing brace of an entity in the middle of the document
+		offset = baseline.indexOf("\n}\n", baseline.length() / 2) + 1;
+		fragment = switch (insertion) {
+		case "SYNTAX_ERROR" -> "\tadded : \n";
+		case "UNRESOLVED" -> "\tadded : Missing\n";
+		default -> "\tadded : String\n";
+		};
+		completed = baseline.substring(0, offset) + fragment + baseline.substring(offset);
+	}
+
+	@Benchmark
+	public List<String> validateInsertion() {
+		return verifier.validateInsertion(baseline, offset, fragment, false);
+	}
+
+	@Benchmark
+	public List<String> validate() {
+		return verifier.validate(completed, false);
+	}
+}
@@ -0,0 +1,85 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.aleiis.hintforge.benchmarks.FixtureProfile;
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+
+/**
+ * Assembly of the sections of a completion prompt: the grammar (whole or
+ * sliced), the context window around the cursor and the example scripts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptAssemblyBenchmark {
+
+	private static final int DOCUMENT_LINES = 2000;
+	private static final int CONTEXT_TOKEN_BUDGET = 1024;
+
+	/** 0 sends the whole grammar, otherwise it is sliced around the cursor. */
+	@Param({ "0", "60" })
+	public int grammarTokenBudget;
+
+	@Param({ "3", "10" })
+	public int examples;
+
+	private FixtureProfile fixture;
+	private BenchmarkAssistant assistant;
+	private String code;
+	private int offset;
+
+	@Setup
+	public void setUp() {
+		fixture = FixtureProfile.create(examples);
+		fixture.getProfile().setGrammarTokenBudget(grammarTokenBudget);
+		fixture.getProfile().setContextTokenBudget(CONTEXT_TOKEN_BUDGET);
+		assistant = new BenchmarkAssistant(fixture);
+		code = EntitiesDocuments.generate(DOCUMENT_LINES);
+		offset = code.indexOf('\n', code.length() / 2) + 1;
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.delete();
+	}
+
+	@Benchmark
+	public String grammar() {
+		return assistant.buildGrammarString(code, offset);
+	}
+
+	@Benchmark
+	public ContextWindowExtractor.Window contextWindow() {
+		return assistant.buildContextWindow(code, offset);
+	}
+
+	@Benchmark
+	public String examples() {
+		return assistant.buildExamplesString();
+	}
+
+	@Benchmark
+	public void prompt(Blackhole blackhole) {
+		blackhole.consume(assistant.buildGrammarString(code, offset));
+		blackhole.consume(assistant.buildContextWindow(code, offset).mark("[[CURSOR]]"));
+		blackhole.consume(assistant.buildExamplesString());
+	}
+}
@@ -0,0 +1,87 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.aleiis.hintforge.benchmarks.FakeEmbeddingModel;
+import dev.aleiis.hintforge.benchmarks.FixtureProfile;
+import dev.aleiis.hintforge.model.EmbeddingManager;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * Retrieval of the documentation of the DSL from an in-memory store, with the
+ * plain {@link EmbeddingStoreContentRetriever} and with the retriever built by
+ * the assistants, which also measures every retrieval.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetrievalBenchmark {
+
+	private static final int MAX_RESULTS = 5;
+	private static final double MIN_SCORE = 0.75;
+	private static final int FILE_CHARS = 5000;
+
+	@Param({ "20", "200" })
+	public int documentationFiles;
+
+	private FixtureProfile fixture;
+	private ContentRetriever plainRetriever;
+	private ContentRetriever assistantRetriever;
+	private Query query;
+
+	@Setup
+	public void setUp() throws IOException {
+		fixture = FixtureProfile.create(0);
+		FakeEmbeddingModel embeddingModel = new FakeEmbeddingModel();
+		InMemoryEmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+		EmbeddingManager embeddingManager = fixture.getProfile().getEmbeddingManager();
+		embeddingManager.setFiles(fixture.writeDocumentation(documentationFiles, FILE_CHARS));
+		embeddingManager.sync(embeddingStore, fixture.getHomeFolder(), embeddingModel);
+
+		plainRetriever = EmbeddingStoreContentRetriever.builder().embeddingStore(embeddingStore)
+				.embeddingModel(embeddingModel).maxResults(MAX_RESULTS).minScore(MIN_SCORE).build();
+		BenchmarkAssistant assistant = new BenchmarkAssistant(fixture);
+		assistant.setEmbeddingStore(embeddingStore);
+		assistantRetriever = assistant.buildContentRetriever(embeddingStore, embeddingModel, MAX_RESULTS, MIN_SCORE);
+		query = Query.from("Add a many feature to the entity that extends Book\n"
+				+ "entity Magazine extends Book {\n\tissue : Int\n\t[[CURSOR]]\n}");
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.delete();
+	}
+
+	@Benchmark
+	public List<Content> plain() {
+		return plainRetriever.retrieve(query);
+	}
+
+	@Benchmark
+	public List<Content> assistant() {
+		return assistantRetriever.retrieve(query);
+	}
+}
@@ -0,0 +1,55 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+
+/**
+ * Validation of a whole document, as done for every generation attempt that
+ * cannot be verified incrementally.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyntaxVerifierBenchmark {
+
+	private static final int LARGE_DOCUMENT_LINES = 2000;
+
+	@Param({ "SMALL", "LARGE" })
+	public String document;
+
+	@Param({ "REUSE", "DISPOSE" })
+	public SyntaxVerifier.ResourceMode resourceMode;
+
+	private SyntaxVerifier verifier;
+	private String code;
+
+	@Setup
+	public void setUp() {
+		verifier = new SyntaxVerifier(EntitiesDocuments.STANDALONE_SETUP, EntitiesDocuments.FILE_EXTENSION);
+		verifier.setResourceMode(resourceMode);
+		code = "SMALL".equals(document) ? EntitiesDocuments.library()
+				: EntitiesDocuments.generate(LARGE_DOCUMENT_LINES);
+	}
+
+	@Benchmark
+	public List<String> validate() {
+		return verifier.validate(code, true);
+	}
+}
@@ -0,0 +1,105 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.aleiis.hintforge.benchmarks.FixtureProfile;
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+
+/**
+ * Trimming of a suggestion that repeats the code around the cursor, as models
+ * often do, on both sides. The linear trimming of the assistants is compared
+ * with the quadratic one it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrimContextOverlapBenchmark {
+
+	private static final String FRAGMENT = "\tpublished : Date\n";
+
+	@Param({ "1000", "10000", "100000" })
+	public int documentChars;
+
+	/** Characters of code the suggestion repeats on each side of the cursor. */
+	@Param({ "200", "2000" })
+	public int repeatedChars;
+
+	private FixtureProfile fixture;
+	private BenchmarkAssistant assistant;
+	private String code;
+	private int offset;
+	private String suggestion;
+
+	@Setup
+	public void setUp() {
+		fixture = FixtureProfile.create(0);
+		assistant = new BenchmarkAssistant(fixture);
+		code = EntitiesDocuments.generate(documentChars / 10).substring(0, documentChars);
+		offset = code.indexOf('\n', documentChars / 2) + 1;
+		int repeated = Math.min(repeatedChars, offset / 2);
+		suggestion = code.substring(offset - repeated, offset) + FRAGMENT + code.substring(offset, offset + repeated);
+		if (!trim().equals(trimQuadratic())) {
+			throw new IllegalStateException("Both trimmings must give the same result");
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.delete();
+	}
+
+	@Benchmark
+	public String trim() {
+		return assistant.trimContextOverlap(code, offset, suggestion);
+	}
+
+	@Benchmark
+	public String trimQuadratic() {
+		return quadraticTrimContextOverlap(code, offset, suggestion);
+	}
+
+	/**
+	 * The trimming done before {@link dev.aleiis.hintforge.utils.TextOverlap}:
+	 * every candidate length is checked with a new substring.
+	 */
+	private static String quadraticTrimContextOverlap(String code, int offset, String suggestion) {
+		String codeBeforeOffset = code.substring(0, offset);
+		String codeAfterOffset = code.substring(offset);
+
+		int prefixLength = 0;
+		int maxPrefixLength = Math.min(suggestion.length(), codeBeforeOffset.length());
+		for (int i = 1; i <= maxPrefixLength; i++) {
+			if (suggestion.startsWith(codeBeforeOffset.substring(codeBeforeOffset.length() - i))) {
+				prefixLength = i;
+			}
+		}
+
+		suggestion = (suggestion.length() - prefixLength > 0) ? suggestion.substring(prefixLength) : "";
+
+		int suffixLength = 0;
+		int maxSuffixLength = Math.min(suggestion.length(), codeAfterOffset.length());
+		for (int i = 1; i <= maxSuffixLength; i++) {
+			if (suggestion.endsWith(codeAfterOffset.substring(0, i))) {
+				suffixLength = i;
+			}
+		}
+
+		return suggestion.substring(0, suggestion.length() - suffixLength);
+	}
+}
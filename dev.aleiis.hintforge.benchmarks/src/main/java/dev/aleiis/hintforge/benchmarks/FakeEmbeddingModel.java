@@ -0,0 +1,71 @@
+package dev.aleiis.hintforge.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * Embedding model that hashes the words of each text into a fixed number of
+ * dimensions, so that texts sharing words are similar. Each call can wait for
+ * a fixed latency to simulate the round trip to a remote provider.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+	public static final int DIMENSION = 256;
+
+	private final long latencyMillis;
+	private final AtomicInteger calls = new AtomicInteger();
+
+	public FakeEmbeddingModel() {
+		this(0);
+	}
+
+	public FakeEmbeddingModel(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	@Override
+	public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+		calls.incrementAndGet();
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while embedding", e);
+			}
+		}
+		List<Embedding> embeddings = new ArrayList<>(segments.size());
+		for (TextSegment segment : segments) {
+			embeddings.add(hash(segment.text()));
+		}
+		return Response.from(embeddings);
+	}
+
+	@Override
+	public int dimension() {
+		return DIMENSION;
+	}
+
+	public int getCalls() {
+		return calls.get();
+	}
+
+	private static Embedding hash(String text) {
+		float[] vector = new float[DIMENSION];
+		for (String word : text.toLowerCase().split("\\W+")) {
+			if (!word.isEmpty()) {
+				vector[Math.floorMod(word.hashCode(), DIMENSION)]++;
+			}
+		}
+		vector[0] += 0.01f;
+		Embedding embedding = Embedding.from(vector);
+		embedding.normalize();
+		return embedding;
+	}
+}
@@ -0,0 +1,122 @@
+package dev.aleiis.hintforge.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+import dev.aleiis.hintforge.model.DslProfile;
+import dev.aleiis.hintforge.model.EmbeddableExternalFile;
+import dev.aleiis.hintforge.model.ExternalFile;
+
+/**
+ * Home folder with a profile of the fixture DSL: its grammar, example scripts
+ * and documentation files.
+ */
+public class FixtureProfile {
+
+	public static final String NAME = "Entities";
+
+	private static final String[] TOPICS = { "entity", "datatype", "feature", "extends", "many", "reference",
+			"name", "type", "model", "element", "inheritance", "cardinality", "scope", "validation" };
+	private static final String[] WORDS = { "declares", "contains", "refers", "to", "a", "the", "of", "every",
+			"is", "can", "be", "with", "and", "or", "must", "list", "single", "value", "unique", "within" };
+
+	private final Path homeFolder;
+	private final DslProfile profile;
+
+	private FixtureProfile(Path homeFolder, DslProfile profile) {
+		this.homeFolder = homeFolder;
+		this.profile = profile;
+	}
+
+	/**
+	 * Creates the home folder with the grammar and the example scripts.
+	 *
+	 * @param examples The number of example scripts, from 20 to 20 * examples
+	 *                 lines long.
+	 */
+	public static FixtureProfile create(int examples) {
+		try {
+			Path homeFolder = Files.createTempDirectory("hintforge-bench");
+			Path grammar = Files.writeString(homeFolder.resolve("Entities.xtext"), EntitiesDocuments.grammar());
+			DslProfile profile = new DslProfile(NAME, EntitiesDocuments.FILE_EXTENSION,
+					new ExternalFile(grammar.toString(), "Entities.xtext"));
+			profile.setDescription("Entities with typed features");
+			profile.setStandaloneSetupClass(EntitiesDocuments.STANDALONE_SETUP);
+			List<ExternalFile> scriptExamples = new ArrayList<>();
+			for (int i = 0; i < examples; i++) {
+				String fileName = String.format("example%d.entities", i + 1);
+				Path example = Files.writeString(homeFolder.resolve(fileName), EntitiesDocuments.generate(20 * (i + 1)));
+				scriptExamples.add(new ExternalFile(example.toString(), fileName));
+			}
+			profile.setScriptExamples(scriptExamples);
+			return new FixtureProfile(homeFolder, profile);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes documentation files made of sentences about the DSL.
+	 *
+	 * @param files The number of files.
+	 * @param chars The approximate length of each file.
+	 *
+	 * @return The files, not embedded yet.
+	 */
+	public List<EmbeddableExternalFile> writeDocumentation(int files, int chars) {
+		Random random = new Random(files * 31L + chars);
+		List<EmbeddableExternalFile> documentation = new ArrayList<>();
+		try {
+			for (int i = 0; i < files; i++) {
+				String fileName = String.format("doc%d.md", i + 1);
+				Path file = Files.writeString(homeFolder.resolve(fileName), sentences(random, chars));
+				documentation.add(new EmbeddableExternalFile(file.toString(), fileName));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return documentation;
+	}
+
+	/**
+	 * @return Random sentences about the DSL of about the given length.
+	 */
+	public static String sentences(Random random, int chars) {
+		StringBuilder text = new StringBuilder();
+		while (text.length() < chars) {
+			text.append("The ").append(TOPICS[random.nextInt(TOPICS.length)]);
+			for (int i = 0; i < 8; i++) {
+				String[] words = (i % 3 == 2) ? TOPICS : WORDS;
+				text.append(' ').append(words[random.nextInt(words.length)]);
+			}
+			text.append(random.nextInt(8) == 0 ? ".\n\n" : ". ");
+		}
+		return text.toString();
+	}
+
+	public Path getHomeFolder() {
+		return homeFolder;
+	}
+
+	public DslProfile getProfile() {
+		return profile;
+	}
+
+	public void delete() {
+		try (Stream<Path> paths = Files.walk(homeFolder)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package dev.aleiis.hintforge.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.aleiis.hintforge.benchmarks.FakeEmbeddingModel;
+import dev.aleiis.hintforge.benchmarks.FixtureProfile;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * Ingestion of the pending documentation files of a profile into an empty
+ * in-memory store. The fake embedding model waits the given latency on every
+ * call, as a remote provider would.
+ *
+ * The concurrent batches of {@link EmbeddingManager#sync} are compared with
+ * the loop they replaced, which embedded one file after the other.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingSyncBenchmark {
+
+	private static final int FILE_CHARS = 20_000;
+
+	@Param({ "10", "50" })
+	public int files;
+
+	@Param({ "0", "100" })
+	public long latencyMillis;
+
+	private FixtureProfile fixture;
+	private List<EmbeddableExternalFile> documentation;
+	private FakeEmbeddingModel embeddingModel;
+	private EmbeddingManager embeddingManager;
+	private List<EmbeddableExternalFile> pendingFiles;
+	private EmbeddingStore<TextSegment> embeddingStore;
+
+	@Setup
+	public void setUp() {
+		fixture = FixtureProfile.create(0);
+		documentation = fixture.writeDocumentation(files, FILE_CHARS);
+		embeddingModel = new FakeEmbeddingModel(latencyMillis);
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareSync() {
+		embeddingStore = new InMemoryEmbeddingStore<>();
+		embeddingManager = new EmbeddingManager();
+		pendingFiles = new ArrayList<>();
+		for (EmbeddableExternalFile file : documentation) {
+			pendingFiles.add(new EmbeddableExternalFile(file.getSourcePath(), file.getOriginalFileName()));
+		}
+		embeddingManager.setFiles(pendingFiles);
+	}
+
+	@TearDown
+	public void tearDown() {
+		fixture.delete();
+	}
+
+	@Benchmark
+	public EmbeddingStore<TextSegment> sync() throws IOException {
+		embeddingManager.sync(embeddingStore, fixture.getHomeFolder(), embeddingModel);
+		return embeddingStore;
+	}
+
+	@Benchmark
+	public EmbeddingStore<TextSegment> syncSequentially() throws IOException {
+		for (EmbeddableExternalFile file : pendingFiles) {
+			file.calculateAndStoreEmbedding(fixture.getHomeFolder(), embeddingStore, embeddingModel);
+		}
+		return embeddingStore;
+	}
+}
@@ -0,0 +1,81 @@
+package dev.aleiis.hintforge.fixture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Documents of the Entities language used by the benchmarks and tests.
+ */
+public final class EntitiesDocuments {
+
+	public static final String FILE_EXTENSION = "entities";
+	public static final String STANDALONE_SETUP = "dev.aleiis.hintforge.fixture.EntitiesStandaloneSetup";
+
+	private static final String[] DATA_TYPES = { "String", "Int", "Date", "Boolean" };
+	private static final int FEATURES_PER_ENTITY = 8;
+
+	private EntitiesDocuments() {
+	}
+
+	/**
+	 * @return The grammar of the language.
+	 */
+	public static String grammar() {
+		return read("Entities.xtext");
+	}
+
+	/**
+	 * @return A small library model of about twenty lines.
+	 */
+	public static String library() {
+		return read("library.entities");
+	}
+
+	/**
+	 * Generates a valid document where every entity extends the previous one and
+	 * refers to the data types and to earlier entities.
+	 *
+	 * @param lines The minimum number of lines of the document.
+	 *
+	 * @return The document.
+	 */
+	public static String generate(int lines) {
+		StringBuilder document = new StringBuilder();
+		for (String dataType : DATA_TYPES) {
+			document.append("datatype ").append(dataType).append('\n');
+		}
+		int lineCount = DATA_TYPES.length;
+		for (int entity = 0; lineCount < lines; entity++) {
+			document.append('\n').append("entity Entity").append(entity);
+			if (entity > 0) {
+				document.append(" extends Entity").append(entity - 1);
+			}
+			document.append(" {\n");
+			for (int feature = 0; feature < FEATURES_PER_ENTITY; feature++) {
+				document.append('\t');
+				if (feature % 4 == 3 && entity > 0) {
+					document.append("many f").append(feature).append(" : Entity").append(entity - 1);
+				} else {
+					document.append('f').append(feature).append(" : ").append(DATA_TYPES[feature % DATA_TYPES.length]);
+				}
+				document.append('\n');
+			}
+			document.append("}\n");
+			lineCount += FEATURES_PER_ENTITY + 3;
+		}
+		return document.toString();
+	}
+
+	private static String read(String name) {
+		try (InputStream input = EntitiesDocuments.class.getResourceAsStream(name)) {
+			if (input == null) {
+				throw new IllegalStateException("Missing fixture resource " + name);
+			}
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package dev.aleiis.hintforge.fixture;
+
+/**
+ * Use this class to register components to be used at runtime / without the
+ * Equinox extension registry.
+ */
+public class EntitiesRuntimeModule extends AbstractEntitiesRuntimeModule {
+}
@@ -0,0 +1,12 @@
+package dev.aleiis.hintforge.fixture;
+
+/**
+ * Initialization support for running Xtext languages without Equinox extension
+ * registry.
+ */
+public class EntitiesStandaloneSetup extends EntitiesStandaloneSetupGenerated {
+
+	public static void doSetup() {
+		new EntitiesStandaloneSetup().createInjectorAndDoEMFRegistration();
+	}
+}
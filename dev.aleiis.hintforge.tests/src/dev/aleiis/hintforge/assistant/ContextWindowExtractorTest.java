@@ -0,0 +1,121 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.eclipse.xtext.util.ITextRegion;
+import org.eclipse.xtext.util.TextRegion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+import dev.aleiis.hintforge.utils.TokenCounter;
+
+class ContextWindowExtractorTest {
+
+	private static final String CODE = EntitiesDocuments.generate(400);
+
+	private static final Supplier<List<ITextRegion>> NOT_NEEDED = () -> {
+		throw new AssertionError("The regions are only needed if the document exceeds the budget");
+	};
+
+	private static ITextRegion entityAt(int offset) {
+		int start = CODE.lastIndexOf("entity ", offset);
+		int end = CODE.indexOf("}\n", offset) + 2;
+		return new TextRegion(start, end - start);
+	}
+
+	private static void assertWindowOfCode(ContextWindowExtractor.Window window, int offset) {
+		assertEquals(CODE.substring(window.getStart(), window.getStart() + window.getText().length()),
+				window.getText());
+		assertEquals(offset, window.getStart() + window.getOffset());
+	}
+
+	@Test
+	void wholeDocumentIsKeptWhenItFits() {
+		int offset = CODE.length() / 2;
+
+		for (int budget : new int[] { 0, TokenCounter.count(CODE) }) {
+			ContextWindowExtractor.Window window = ContextWindowExtractor.extract(CODE, offset, NOT_NEEDED, budget);
+
+			assertEquals(CODE, window.getText());
+			assertEquals(offset, window.getOffset());
+			assertEquals(window.getDocumentTokens(), window.getWindowTokens());
+		}
+	}
+
+	static Stream<Arguments> windows() {
+		int middle = CODE.indexOf("f3", CODE.length() / 2);
+		return Stream.of(
+				Arguments.of("start", 0, 50), Arguments.of("start", 0, 400),
+				Arguments.of("middle", middle, 50), Arguments.of("middle", middle, 400),
+				Arguments.of("end", CODE.length(), 50), Arguments.of("end", CODE.length(), 400));
+	}
+
+	@ParameterizedTest(name = "{0} with {2} tokens")
+	@MethodSource("windows")
+	void windowFitsTheBudget(String description, int offset, int budget) {
+		ContextWindowExtractor.Window window = ContextWindowExtractor.extract(CODE, offset, List::of, budget);
+
+		assertWindowOfCode(window, offset);
+		assertTrue(window.getWindowTokens() <= budget, window.getWindowTokens() + " tokens");
+		assertTrue(window.getWindowTokens() > budget / 2, "The window should use most of the budget");
+		assertEquals(TokenCounter.count(CODE), window.getDocumentTokens());
+	}
+
+	@Test
+	void windowAtTheStartOfTheDocumentOnlyGrowsAfterTheCursor() {
+		ContextWindowExtractor.Window window = ContextWindowExtractor.extract(CODE, 0, List::of, 100);
+
+		assertEquals(0, window.getStart());
+		assertEquals(0, window.getOffset());
+		assertTrue(CODE.startsWith(window.getText()));
+		assertTrue(window.mark("<cursor>").startsWith("<cursor>datatype"));
+	}
+
+	@Test
+	void windowAtTheEndOfTheDocumentOnlyGrowsBeforeTheCursor() {
+		ContextWindowExtractor.Window window = ContextWindowExtractor.extract(CODE, CODE.length(), List::of, 100);
+
+		assertEquals(CODE.length(), window.getStart() + window.getText().length());
+		assertEquals(window.getText().length(), window.getOffset());
+		assertTrue(CODE.endsWith(window.getText()));
+		assertTrue(window.mark("<cursor>").endsWith("}\n<cursor>"));
+	}
+
+	@Test
+	void enclosingElementIsKeptWhole() {
+		int offset = CODE.indexOf("f5", CODE.length() / 2);
+		ITextRegion entity = entityAt(offset);
+		ITextRegion feature = new TextRegion(offset, CODE.indexOf('\n', offset) - offset);
+		int budget = TokenCounter.count(CODE.substring(entity.getOffset(), entity.getOffset() + entity.getLength()))
+				+ 10;
+
+		ContextWindowExtractor.Window window = ContextWindowExtractor.extract(CODE, offset,
+				() -> List.of(feature, entity), budget);
+
+		assertWindowOfCode(window, offset);
+		assertTrue(window.getStart() <= entity.getOffset());
+		assertTrue(window.getStart() + window.getText().length() >= entity.getOffset() + entity.getLength());
+		assertTrue(window.getWindowTokens() <= budget);
+	}
+
+	@Test
+	void elementsBiggerThanTheBudgetFallBackToLines() {
+		int offset = CODE.indexOf("f5", CODE.length() / 2);
+		ITextRegion document = new TextRegion(0, CODE.length());
+
+		ContextWindowExtractor.Window window = ContextWindowExtractor.extract(CODE, offset, () -> List.of(document),
+				40);
+
+		assertWindowOfCode(window, offset);
+		assertTrue(window.getWindowTokens() <= 40);
+		assertTrue(window.getText().contains("f5"));
+	}
+}
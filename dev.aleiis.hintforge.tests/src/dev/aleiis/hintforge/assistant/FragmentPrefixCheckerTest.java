@@ -0,0 +1,61 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FragmentPrefixCheckerTest {
+
+	private static final String CONTEXT = "entity Book {\n";
+
+	private static boolean appendAll(FragmentPrefixChecker checker, String... tokens) {
+		for (String token : tokens) {
+			if (!checker.append(token)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Test
+	void leadingFenceAndLanguageTagAreSkipped() {
+		FragmentPrefixChecker checker = new FragmentPrefixChecker(CONTEXT);
+
+		assertTrue(appendAll(checker, "``", "`ent", "ities\n", "\tisbn : ", "String\n}", "\n``", "`"));
+		assertTrue(checker.isFenced());
+		assertEquals("\tisbn : String\n}\n", checker.getCode());
+	}
+
+	@Test
+	void closingFenceEndsTheFragment() {
+		FragmentPrefixChecker checker = new FragmentPrefixChecker(CONTEXT);
+
+		assertTrue(appendAll(checker, "```\n", "\tisbn : String\n", "```", "\n}}} ]"));
+		assertEquals("\tisbn : String\n", checker.getCode());
+	}
+
+	@Test
+	void fenceInsideTheFragmentIsUnrecoverable() {
+		FragmentPrefixChecker checker = new FragmentPrefixChecker(CONTEXT);
+
+		assertFalse(appendAll(checker, "\tisbn : String\n", "``", "`"));
+		assertFalse(checker.isFenced());
+	}
+
+	@Test
+	void unbalancedBracketInsideFenceIsUnrecoverable() {
+		FragmentPrefixChecker checker = new FragmentPrefixChecker(CONTEXT);
+
+		assertFalse(appendAll(checker, "```entities\n", "}\n", "}"));
+	}
+
+	@Test
+	void unfencedFragmentIsKeptWhole() {
+		FragmentPrefixChecker checker = new FragmentPrefixChecker(CONTEXT);
+
+		assertTrue(appendAll(checker, "\n\t", "isbn : String"));
+		assertEquals("\n\tisbn : String", checker.getCode());
+	}
+}
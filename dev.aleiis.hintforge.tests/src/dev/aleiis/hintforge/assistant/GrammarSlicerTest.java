@@ -0,0 +1,92 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+import dev.aleiis.hintforge.utils.TokenCounter;
+
+class GrammarSlicerTest {
+
+	private static final String GRAMMAR = EntitiesDocuments.grammar();
+	private static final String HEADER = GRAMMAR.substring(0, GRAMMAR.indexOf("Model:")).strip();
+
+	@Test
+	void grammarIsSplitIntoItsRules() {
+		GrammarSlicer slicer = new GrammarSlicer(GRAMMAR);
+
+		assertEquals(List.of("Model", "Element", "DataType", "Entity", "Feature"), List.copyOf(slicer.getRuleNames()));
+	}
+
+	@Test
+	void wholeGrammarIsKeptWhenItFits() {
+		GrammarSlicer slicer = new GrammarSlicer(GRAMMAR);
+
+		GrammarSlicer.Slice slice = slicer.slice(List.of("Feature"), TokenCounter.count(GRAMMAR));
+
+		assertEquals(GRAMMAR, slice.getText());
+		assertEquals(0, slice.getSavedTokens());
+	}
+
+	static IntStream budgets() {
+		// From the smallest budget that fits the header to the whole grammar
+		return IntStream.range(TokenCounter.count(HEADER) + 16, TokenCounter.count(GRAMMAR));
+	}
+
+	@ParameterizedTest
+	@MethodSource("budgets")
+	void sliceFitsTheBudget(int budget) {
+		GrammarSlicer slicer = new GrammarSlicer(GRAMMAR);
+
+		for (String rule : slicer.getRuleNames()) {
+			GrammarSlicer.Slice slice = slicer.slice(List.of(rule), budget);
+
+			assertTrue(slice.getSliceTokens() <= budget,
+					String.format("The slice from %s has %d tokens", rule, slice.getSliceTokens()));
+			assertEquals(TokenCounter.count(slice.getText()), slice.getSliceTokens());
+			assertTrue(slice.getText().startsWith(HEADER));
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("budgets")
+	void rulesNotReachableFromTheCursorAreOmitted(int budget) {
+		GrammarSlicer slicer = new GrammarSlicer(GRAMMAR);
+
+		// Feature reaches every rule but the entry rule
+		String text = slicer.slice(List.of("Feature"), budget).getText();
+
+		assertFalse(text.contains("Model:"));
+		long kept = Stream.of("Element:", "DataType:", "Entity:", "Feature:").filter(text::contains).count();
+		assertTrue(text.endsWith(String.format("// %d rules not relevant at the cursor were omitted", 5 - kept)));
+	}
+
+	@Test
+	void rulesWithoutDependenciesAreSlicedAlone() {
+		GrammarSlicer slicer = new GrammarSlicer(GRAMMAR);
+
+		GrammarSlicer.Slice slice = slicer.slice(List.of("DataType"), TokenCounter.count(GRAMMAR) - 1);
+
+		assertEquals(HEADER + "\n\nDataType:\n\t'datatype' name=ID;"
+				+ "\n\n// 4 rules not relevant at the cursor were omitted", slice.getText());
+		assertTrue(slice.getSavedTokens() > 0);
+	}
+
+	@Test
+	void unknownRulesStartFromTheEntryRule() {
+		GrammarSlicer slicer = new GrammarSlicer(GRAMMAR);
+
+		String text = slicer.slice(List.of("Unknown"), TokenCounter.count(GRAMMAR) - 1).getText();
+
+		assertTrue(text.contains("Model:"));
+	}
+}
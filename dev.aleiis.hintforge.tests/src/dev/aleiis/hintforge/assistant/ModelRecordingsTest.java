@@ -0,0 +1,44 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.aleiis.hintforge.assistant.ModelRecordings.Recording;
+
+class ModelRecordingsTest {
+
+	@TempDir
+	Path folder;
+
+	private static Recording recording(String response) {
+		Recording recording = new Recording();
+		recording.kind = "chat";
+		recording.response = response;
+		return recording;
+	}
+
+	@Test
+	void identicalRequestsKeepTheirOwnRecording() {
+		ModelRecordings recorded = new ModelRecordings(folder);
+		recorded.write(recorded.nextKey("chat", "gpt", 0.7, "request"), recording("first"));
+		recorded.write(recorded.nextKey("chat", "gpt", 0.7, "request"), recording("second"));
+
+		ModelRecordings replayed = new ModelRecordings(folder);
+		assertEquals("first", replayed.read(replayed.nextKey("chat", "gpt", 0.7, "request")).response);
+		assertEquals("second", replayed.read(replayed.nextKey("chat", "gpt", 0.7, "request")).response);
+	}
+
+	@Test
+	void firstOccurrenceIsKeyedByTheRequestAlone() {
+		ModelRecordings recordings = new ModelRecordings(folder);
+
+		assertEquals(ModelRecordings.key("chat", "gpt", 0.7, "request"),
+				recordings.nextKey("chat", "gpt", 0.7, "request"));
+		assertEquals(ModelRecordings.key("chat", "gpt", 0.2, "request"),
+				recordings.nextKey("chat", "gpt", 0.2, "request"));
+	}
+}
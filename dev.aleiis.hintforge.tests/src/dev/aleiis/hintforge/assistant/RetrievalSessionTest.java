@@ -0,0 +1,125 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+class RetrievalSessionTest {
+
+	private static final int ATTEMPTS = 6;
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	private static List<Content> contentsFor(Query query) {
+		return List.of(Content.from("Documentation for " + query.text()));
+	}
+
+	@Test
+	void attemptsOfTheSessionRetrieveOnce() {
+		RetrievalSession session = new RetrievalSession();
+		AtomicInteger retrievals = new AtomicInteger();
+		ContentRetriever retriever = query -> {
+			retrievals.incrementAndGet();
+			return contentsFor(query);
+		};
+
+		List<Content> first = session.retrieve(Query.from("generation"), retriever);
+		for (int i = 1; i < ATTEMPTS; i++) {
+			assertEquals(first, session.retrieve(Query.from("fix " + i), retriever));
+		}
+
+		assertEquals(1, retrievals.get());
+		assertEquals(ATTEMPTS - 1, session.getReuseCount());
+		assertTrue(session.hasRetrieved());
+		assertEquals(List.of(Content.from("Documentation for generation")), first);
+	}
+
+	@Test
+	void concurrentAttemptsWaitForTheFirstRetrieval() {
+		RetrievalSession session = new RetrievalSession("session query");
+		AtomicInteger retrievals = new AtomicInteger();
+		AtomicBoolean everyAttemptWaited = new AtomicBoolean();
+		ContentRetriever retriever = query -> {
+			retrievals.incrementAndGet();
+			// Holds the retrieval until every other attempt waits for it
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			try {
+				while (session.getReuseCount() < ATTEMPTS - 1 && System.currentTimeMillis() < deadline) {
+					Thread.sleep(1);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			everyAttemptWaited.set(session.getReuseCount() == ATTEMPTS - 1);
+			return contentsFor(query);
+		};
+
+		RequestContext context = new RequestContext();
+		context.setRetrievalSession(session);
+		List<Future<List<Content>>> attempts = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < ATTEMPTS; i++) {
+				Query query = Query.from("attempt " + i);
+				attempts.add(executor.submit(() -> context.call(() -> session.retrieve(query, retriever))));
+			}
+		}
+
+		for (Future<List<Content>> attempt : attempts) {
+			assertEquals(List.of(Content.from("Documentation for session query")), attempt.resultNow());
+		}
+		assertTrue(everyAttemptWaited.get());
+		assertEquals(1, retrievals.get());
+		assertEquals(ATTEMPTS - 1, session.getReuseCount());
+	}
+
+	@Test
+	void failedRetrievalIsRetriedByTheNextAttempt() {
+		RetrievalSession session = new RetrievalSession();
+		AtomicInteger retrievals = new AtomicInteger();
+		IllegalStateException failure = new IllegalStateException("The embedding store is unavailable");
+		ContentRetriever retriever = query -> {
+			if (retrievals.incrementAndGet() == 1) {
+				throw failure;
+			}
+			return contentsFor(query);
+		};
+
+		assertSame(failure, assertThrows(IllegalStateException.class,
+				() -> session.retrieve(Query.from("generation"), retriever)));
+		assertEquals(List.of(Content.from("Documentation for fix")), session.retrieve(Query.from("fix"), retriever));
+		assertEquals(List.of(Content.from("Documentation for fix")), session.retrieve(Query.from("other"), retriever));
+
+		assertEquals(2, retrievals.get());
+	}
+
+	@Test
+	void sessionQueryIsOnlyBuiltByTheFirstRetrieval() {
+		AtomicInteger builds = new AtomicInteger();
+		RetrievalSession session = new RetrievalSession(() -> {
+			builds.incrementAndGet();
+			return "built query";
+		});
+		ContentRetriever retriever = RetrievalSessionTest::contentsFor;
+
+		for (int i = 0; i < ATTEMPTS; i++) {
+			assertEquals(List.of(Content.from("Documentation for built query")),
+					session.retrieve(Query.from("attempt " + i), retriever));
+		}
+
+		assertEquals(1, builds.get());
+	}
+}
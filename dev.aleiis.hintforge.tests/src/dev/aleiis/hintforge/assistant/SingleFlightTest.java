@@ -0,0 +1,130 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+	private static final int REQUESTS = 8;
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	/**
+	 * Runs identical requests on their own threads. The work of the leading
+	 * request is held until every request is blocked, either doing the work or
+	 * waiting for it, so that none of them arrives after the work is done.
+	 *
+	 * @return The result or the exception of each request.
+	 */
+	private static AtomicReferenceArray<Object> runConcurrently(String key, Supplier<Object> work)
+			throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<Object> heldWork = () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return work.get();
+		};
+
+		AtomicReferenceArray<Object> outcomes = new AtomicReferenceArray<>(REQUESTS);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < REQUESTS; i++) {
+			int request = i;
+			threads.add(Thread.ofPlatform().start(() -> {
+				try {
+					outcomes.set(request, SingleFlight.getInstance().run(key, new RequestContext(), heldWork));
+				} catch (RuntimeException e) {
+					outcomes.set(request, e);
+				}
+			}));
+		}
+
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+			assertTrue(System.currentTimeMillis() < deadline, "The requests never blocked");
+			Thread.sleep(5);
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(TIMEOUT_MILLIS);
+		}
+		return outcomes;
+	}
+
+	@Test
+	void identicalConcurrentRequestsDoTheWorkOnce() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		long savedBefore = SingleFlight.getInstance().getSavedCalls();
+
+		AtomicReferenceArray<Object> outcomes = runConcurrently(UUID.randomUUID().toString(), () -> {
+			runs.incrementAndGet();
+			return "suggestion";
+		});
+
+		assertEquals(1, runs.get());
+		for (int i = 0; i < REQUESTS; i++) {
+			assertEquals("suggestion", outcomes.get(i));
+		}
+		assertEquals(REQUESTS - 1, SingleFlight.getInstance().getSavedCalls() - savedBefore);
+	}
+
+	@Test
+	void failureReachesEveryWaiterAndIsNotKept() throws InterruptedException {
+		String key = UUID.randomUUID().toString();
+		AtomicInteger runs = new AtomicInteger();
+		IllegalStateException failure = new IllegalStateException("The model is unavailable");
+
+		AtomicReferenceArray<Object> outcomes = runConcurrently(key, () -> {
+			runs.incrementAndGet();
+			throw failure;
+		});
+
+		assertEquals(1, runs.get());
+		for (int i = 0; i < REQUESTS; i++) {
+			assertSame(failure, outcomes.get(i));
+		}
+
+		// The failed request is no longer in flight, so the next one does the work
+		assertEquals("suggestion", SingleFlight.getInstance().run(key, new RequestContext(), () -> {
+			runs.incrementAndGet();
+			return "suggestion";
+		}));
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	void requestsWithDifferentKeysDoNotWaitForEachOther() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread first = Thread.ofPlatform().start(() -> SingleFlight.getInstance().run(UUID.randomUUID().toString(),
+				new RequestContext(), () -> {
+					started.countDown();
+					try {
+						return release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return false;
+					}
+				}));
+		assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+		assertEquals("other", SingleFlight.getInstance().run(UUID.randomUUID().toString(), new RequestContext(),
+				() -> "other"));
+
+		release.countDown();
+		first.join(TIMEOUT_MILLIS);
+	}
+}
@@ -0,0 +1,142 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import dev.aleiis.hintforge.fixture.EntitiesDocuments;
+
+class SyntaxVerifierTest {
+
+	private static final int VALIDATIONS = 10_000;
+	private static final int WARMUP_VALIDATIONS = 500;
+	private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+
+	private static SyntaxVerifier createVerifier() {
+		return new SyntaxVerifier(EntitiesDocuments.STANDALONE_SETUP, EntitiesDocuments.FILE_EXTENSION);
+	}
+
+	@ParameterizedTest
+	@EnumSource(SyntaxVerifier.ResourceMode.class)
+	void heapStaysFlatOverManyValidations(SyntaxVerifier.ResourceMode resourceMode) {
+		SyntaxVerifier verifier = createVerifier();
+		verifier.setResourceMode(resourceMode);
+		String code = EntitiesDocuments.library();
+		assertEquals(List.of(), verifier.validate(code, false));
+
+		for (int i = 0; i < WARMUP_VALIDATIONS; i++) {
+			verifier.validate(code, false);
+		}
+		long heapBefore = usedHeapAfterGc();
+		for (int i = 0; i < VALIDATIONS; i++) {
+			verifier.validate(code, false);
+		}
+		long heapAfter = usedHeapAfterGc();
+
+		assertTrue(heapAfter - heapBefore < MAX_HEAP_GROWTH_BYTES, String.format(
+				"The heap grew by %d KB over %d validations", (heapAfter - heapBefore) / 1024, VALIDATIONS));
+	}
+
+	static Stream<Arguments> insertions() {
+		String library = EntitiesDocuments.library();
+		int bookEnd = library.indexOf("}", library.indexOf("entity Book"));
+		return Stream.of(
+				Arguments.of("valid feature", bookEnd, "\tisbn : String\n"),
+				Arguments.of("unresolved type", bookEnd, "\tpublisher : Publisher\n"),
+				Arguments.of("missing type", bookEnd, "\tpublisher : \n"),
+				Arguments.of("unbalanced brace", bookEnd, "}\n}\n"),
+				Arguments.of("new entity", library.length(), "\nentity Shelf {\n\tmany books : Book\n}\n"),
+				Arguments.of("keyword at start", 0, "entity "),
+				Arguments.of("split identifier", library.indexOf("Author") + 3, "x y"),
+				Arguments.of("nothing", bookEnd, ""));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("insertions")
+	void validateInsertionFindsTheIssuesOfValidate(String description, int offset, String insertion) {
+		SyntaxVerifier incremental = createVerifier();
+		SyntaxVerifier full = createVerifier();
+		full.setIncrementalParsing(false);
+		String baseline = EntitiesDocuments.library();
+		String completed = baseline.substring(0, offset) + insertion + baseline.substring(offset);
+
+		for (boolean excludeEtypeErrors : new boolean[] { false, true }) {
+			List<String> expected = full.validate(completed, excludeEtypeErrors);
+			// Twice, so that the second partial parse starts from the reverted baseline
+			for (int i = 0; i < 2; i++) {
+				assertEquals(expected, incremental.validateInsertion(baseline, offset, insertion, excludeEtypeErrors));
+			}
+		}
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("insertions")
+	void baselineParseAnswersQueriesAndInsertions(String description, int offset, String insertion) {
+		SyntaxVerifier incremental = createVerifier();
+		SyntaxVerifier full = createVerifier();
+		full.setIncrementalParsing(false);
+		String baseline = EntitiesDocuments.library();
+
+		// The queries load the baseline that the insertion is then validated against
+		assertEquals(full.findRulesAt(baseline, offset), incremental.findRulesAt(baseline, offset));
+		assertEquals(full.findEnclosingRegions(baseline, offset), incremental.findEnclosingRegions(baseline, offset));
+		assertEquals(full.validateInsertion(baseline, offset, insertion, false),
+				incremental.validateInsertion(baseline, offset, insertion, false));
+		assertEquals(full.findRulesAt(baseline, offset), incremental.findRulesAt(baseline, offset));
+	}
+
+	@Test
+	void baselineDoesNotResolveTheReferencesOfOtherDocuments() {
+		SyntaxVerifier verifier = createVerifier();
+		String shelf = "entity Shelf {\n\tmany books : Book\n}\n";
+		List<String> unresolved = verifier.validate(shelf, false);
+		assertFalse(unresolved.isEmpty(), "Book is not declared in the shelf document");
+
+		// Parses the library, which declares Book, as the baseline
+		verifier.findRulesAt(EntitiesDocuments.library(), 0);
+
+		assertEquals(unresolved, verifier.validate(shelf, false));
+		String emptyShelf = "entity Shelf {\n}\n";
+		assertEquals(unresolved,
+				verifier.validateInsertion(emptyShelf, emptyShelf.indexOf('}'), "\tmany books : Book\n", false));
+	}
+
+	@Test
+	void issueLinesAreRebasedToTheWindow() {
+		String issue = "ERROR: missing '}' at 'entity' ( line : 12; column : 3)";
+
+		assertEquals("ERROR: missing '}' at 'entity' ( line : 3; column : 3)",
+				SyntaxVerifier.rebaseIssueLine(issue, 10, 5));
+		assertEquals("ERROR: missing '}' at 'entity' (outside of the code shown)",
+				SyntaxVerifier.rebaseIssueLine(issue, 13, 5));
+		assertEquals("ERROR: missing '}' at 'entity' (outside of the code shown)",
+				SyntaxVerifier.rebaseIssueLine(issue, 1, 11));
+	}
+
+	/**
+	 * @return The smallest heap usage seen after a few garbage collections.
+	 */
+	private static long usedHeapAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
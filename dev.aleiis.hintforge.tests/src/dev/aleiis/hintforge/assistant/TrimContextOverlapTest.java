@@ -0,0 +1,84 @@
+package dev.aleiis.hintforge.assistant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.aleiis.hintforge.model.DslProfile;
+
+class TrimContextOverlapTest {
+
+	private static final int PAIRS = 20_000;
+
+	@TempDir
+	Path homeFolder;
+
+	private Assistant createAssistant() {
+		DslProfile profile = new DslProfile();
+		profile.setName("Entities");
+		return new Assistant(homeFolder, "", profile, "gpt-4o-mini") {
+		};
+	}
+
+	/** Few distinct characters, so that the suggestion often repeats the code. */
+	private static String randomText(Random random, int maxLength) {
+		StringBuilder text = new StringBuilder();
+		int length = random.nextInt(maxLength + 1);
+		for (int i = 0; i < length; i++) {
+			text.append("ab\n".charAt(random.nextInt(3)));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * The trimming done before {@link dev.aleiis.hintforge.utils.TextOverlap}:
+	 * every candidate length is checked with a new substring.
+	 */
+	private static String quadraticTrimContextOverlap(String code, int offset, String suggestion) {
+		String codeBeforeOffset = code.substring(0, offset);
+		String codeAfterOffset = code.substring(offset);
+
+		int prefixLength = 0;
+		int maxPrefixLength = Math.min(suggestion.length(), codeBeforeOffset.length());
+		for (int i = 1; i <= maxPrefixLength; i++) {
+			if (suggestion.startsWith(codeBeforeOffset.substring(codeBeforeOffset.length() - i))) {
+				prefixLength = i;
+			}
+		}
+
+		suggestion = (suggestion.length() - prefixLength > 0) ? suggestion.substring(prefixLength) : "";
+
+		int suffixLength = 0;
+		int maxSuffixLength = Math.min(suggestion.length(), codeAfterOffset.length());
+		for (int i = 1; i <= maxSuffixLength; i++) {
+			if (suggestion.endsWith(codeAfterOffset.substring(0, i))) {
+				suffixLength = i;
+			}
+		}
+
+		return suggestion.substring(0, suggestion.length() - suffixLength);
+	}
+
+	@Test
+	void trimMatchesTheQuadraticTrim() {
+		Assistant assistant = createAssistant();
+		Random random = new Random(42);
+		for (int i = 0; i < PAIRS; i++) {
+			String code = randomText(random, 40);
+			int offset = random.nextInt(code.length() + 1);
+			// Like models do, the suggestion often repeats the code around the cursor
+			String before = code.substring(offset - random.nextInt(offset + 1), offset);
+			String after = code.substring(offset, offset + random.nextInt(code.length() - offset + 1));
+			String suggestion = (random.nextBoolean() ? before : "") + randomText(random, 10)
+					+ (random.nextBoolean() ? after : "");
+
+			assertEquals(quadraticTrimContextOverlap(code, offset, suggestion),
+					assistant.trimContextOverlap(code, offset, suggestion),
+					String.format("code %s, offset %d, suggestion %s", code, offset, suggestion));
+		}
+	}
+}
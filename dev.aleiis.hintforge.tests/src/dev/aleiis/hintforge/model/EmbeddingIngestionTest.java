@@ -0,0 +1,221 @@
+package dev.aleiis.hintforge.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+
+import dev.aleiis.hintforge.utils.TokenCounter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+class EmbeddingIngestionTest {
+
+	private static final String MODEL_NAME = "text-embedding-3-small";
+
+	@TempDir
+	Path homeFolder;
+
+	/**
+	 * Embeds every segment as its length and hash, so the store can check that
+	 * each embedding is stored with its own segment.
+	 */
+	private static final class FakeEmbeddingModel implements EmbeddingModel {
+
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		final Function<Integer, RuntimeException> failure;
+
+		FakeEmbeddingModel(Function<Integer, RuntimeException> failure) {
+			this.failure = failure;
+		}
+
+		@Override
+		public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+			int call;
+			synchronized (batchSizes) {
+				call = batchSizes.size();
+				batchSizes.add(segments.size());
+			}
+			RuntimeException error = failure.apply(call);
+			if (error != null) {
+				throw error;
+			}
+			if (call == 0) {
+				// The first batch finishes last
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return Response.from(segments.stream().map(FakeEmbeddingModel::embedding).toList());
+		}
+
+		static Embedding embedding(TextSegment segment) {
+			return Embedding.from(new float[] { segment.text().length(), segment.text().hashCode() });
+		}
+	}
+
+	private static final class RecordingStore extends InMemoryEmbeddingStore<TextSegment> {
+
+		final List<List<TextSegment>> stored = new ArrayList<>();
+		int mismatches;
+
+		@Override
+		public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+			for (int i = 0; i < segments.size(); i++) {
+				if (!embeddings.get(i).equals(FakeEmbeddingModel.embedding(segments.get(i)))) {
+					mismatches++;
+				}
+			}
+			stored.add(segments);
+			super.addAll(ids, embeddings, segments);
+		}
+	}
+
+	private List<EmbeddableExternalFile> writeFiles(int count, int paragraphs) throws IOException {
+		List<EmbeddableExternalFile> files = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			StringBuilder content = new StringBuilder();
+			for (int j = 0; j < paragraphs; j++) {
+				content.append(String.format("File %d, paragraph %d. ", i, j)).append("entity Book ".repeat(60))
+						.append("\n\n");
+			}
+			Path file = homeFolder.resolve("doc" + i + ".md");
+			Files.writeString(file, content);
+			files.add(new EmbeddableExternalFile(file.toString(), file.getFileName().toString()));
+		}
+		return files;
+	}
+
+	@Test
+	void embeddingModelTokensAreCountedWithItsEncoding() {
+		// A text the GPT-4o encoding splits into fewer tokens
+		String text = "Los libros y las bibliotecas: ¿cómo se relacionan las entidades?";
+		EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+
+		assertEquals(registry.getEncoding(EncodingType.CL100K_BASE).countTokensOrdinary(text),
+				TokenCounter.count(text, MODEL_NAME));
+		assertNotEquals(TokenCounter.count(text), TokenCounter.count(text, MODEL_NAME));
+	}
+
+	@Test
+	void packRespectsTheSegmentLimit() {
+		List<TextSegment> segments = new ArrayList<>();
+		for (int i = 0; i < 2 * EmbeddingIngestion.MAX_BATCH_SEGMENTS + 10; i++) {
+			segments.add(TextSegment.from("segment " + i));
+		}
+
+		List<int[]> batches = EmbeddingIngestion.pack(segments, MODEL_NAME);
+
+		assertEquals(3, batches.size());
+		assertEquals(EmbeddingIngestion.MAX_BATCH_SEGMENTS, batches.get(0)[1] - batches.get(0)[0]);
+		assertEquals(EmbeddingIngestion.MAX_BATCH_SEGMENTS, batches.get(1)[1] - batches.get(1)[0]);
+		assertEquals(10, batches.get(2)[1] - batches.get(2)[0]);
+	}
+
+	@Test
+	void packRespectsTheTokenLimitOfTheModel() {
+		List<TextSegment> segments = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			segments.add(TextSegment.from("entity Book ".repeat(9_000 + 1000 * i)));
+		}
+
+		List<int[]> batches = EmbeddingIngestion.pack(segments, MODEL_NAME);
+
+		int expectedStart = 0;
+		for (int b = 0; b < batches.size(); b++) {
+			int[] batch = batches.get(b);
+			assertEquals(expectedStart, batch[0]);
+			int tokens = 0;
+			for (int i = batch[0]; i < batch[1]; i++) {
+				tokens += TokenCounter.count(segments.get(i).text(), MODEL_NAME);
+			}
+			assertTrue(tokens <= EmbeddingIngestion.MAX_BATCH_TOKENS, "Batch " + b + " has " + tokens + " tokens");
+			if (b + 1 < batches.size()) {
+				int next = TokenCounter.count(segments.get(batch[1]).text(), MODEL_NAME);
+				assertTrue(tokens + next > EmbeddingIngestion.MAX_BATCH_TOKENS, "Batch " + b + " could hold more");
+			}
+			expectedStart = batch[1];
+		}
+		assertEquals(segments.size(), expectedStart);
+		assertTrue(batches.size() > 1);
+	}
+
+	@Test
+	void filesAreStoredInOrderWhenBatchesFinishOutOfOrder() throws IOException {
+		List<EmbeddableExternalFile> files = writeFiles(8, 150);
+		FakeEmbeddingModel model = new FakeEmbeddingModel(call -> null);
+		RecordingStore store = new RecordingStore();
+		List<EmbeddableExternalFile> stored = new ArrayList<>();
+
+		new EmbeddingIngestion(store, model, MODEL_NAME).ingest(files, homeFolder, stored::add);
+
+		assertTrue(model.batchSizes.size() > 1, "The files should need several batches");
+		assertEquals(files, stored);
+		assertEquals(0, store.mismatches);
+		for (int i = 0; i < files.size(); i++) {
+			assertEquals(files.get(i).split(homeFolder), store.stored.get(i));
+			assertEquals(store.stored.get(i).size(), files.get(i).getEmbeddingIds().size());
+		}
+	}
+
+	@Test
+	void rateLimitedBatchesAreRetried() throws IOException {
+		List<EmbeddableExternalFile> files = writeFiles(2, 3);
+		FakeEmbeddingModel model = new FakeEmbeddingModel(
+				call -> (call == 0) ? new RateLimitException("Too many requests") : null);
+		List<EmbeddableExternalFile> stored = new ArrayList<>();
+
+		new EmbeddingIngestion(new RecordingStore(), model, MODEL_NAME).ingest(files, homeFolder, stored::add);
+
+		assertEquals(2, model.batchSizes.size());
+		assertEquals(files, stored);
+	}
+
+	@Test
+	void http429IsTreatedAsRateLimited() throws IOException {
+		List<EmbeddableExternalFile> files = writeFiles(1, 3);
+		FakeEmbeddingModel model = new FakeEmbeddingModel(
+				call -> (call == 0) ? new RuntimeException(new HttpException(429, "Too many requests")) : null);
+		List<EmbeddableExternalFile> stored = new ArrayList<>();
+
+		new EmbeddingIngestion(new RecordingStore(), model, MODEL_NAME).ingest(files, homeFolder, stored::add);
+
+		assertEquals(2, model.batchSizes.size());
+		assertEquals(files, stored);
+	}
+
+	@Test
+	void otherFailuresAreNotRetried() throws IOException {
+		List<EmbeddableExternalFile> files = writeFiles(1, 3);
+		FakeEmbeddingModel model = new FakeEmbeddingModel(call -> new HttpException(401, "Unauthorized"));
+		List<EmbeddableExternalFile> stored = new ArrayList<>();
+
+		assertThrows(HttpException.class,
+				() -> new EmbeddingIngestion(new RecordingStore(), model, MODEL_NAME).ingest(files, homeFolder,
+						stored::add));
+		assertEquals(1, model.batchSizes.size());
+		assertTrue(stored.isEmpty());
+	}
+}
@@ -0,0 +1,73 @@
+package dev.aleiis.hintforge.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TextOverlapTest {
+
+	private static final int PAIRS = 20_000;
+
+	/** Few distinct characters, so that random texts overlap often. */
+	private static String randomText(Random random, int maxLength) {
+		StringBuilder text = new StringBuilder();
+		int length = random.nextInt(maxLength + 1);
+		for (int i = 0; i < length; i++) {
+			text.append("ab\n".charAt(random.nextInt(3)));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Checks every candidate length with a new substring, as the trimming did
+	 * before {@link TextOverlap}.
+	 */
+	private static int quadraticOverlap(String text, String pattern) {
+		int overlap = 0;
+		for (int i = 1; i <= Math.min(text.length(), pattern.length()); i++) {
+			if (pattern.startsWith(text.substring(text.length() - i))) {
+				overlap = i;
+			}
+		}
+		return overlap;
+	}
+
+	@Test
+	void overlapMatchesTheQuadraticSearch() {
+		Random random = new Random(42);
+		for (int i = 0; i < PAIRS; i++) {
+			String text = randomText(random, 30);
+			String pattern = randomText(random, 30);
+
+			assertEquals(quadraticOverlap(text, pattern),
+					TextOverlap.suffixPrefixOverlap(text, 0, text.length(), pattern, 0, pattern.length()),
+					String.format("text %s, pattern %s", text, pattern));
+		}
+	}
+
+	@Test
+	void overlapOfRangesMatchesTheOverlapOfSubstrings() {
+		Random random = new Random(7);
+		for (int i = 0; i < PAIRS; i++) {
+			String text = randomText(random, 30);
+			String pattern = randomText(random, 30);
+			int textStart = random.nextInt(text.length() + 1);
+			int textEnd = textStart + random.nextInt(text.length() - textStart + 1);
+			int patternStart = random.nextInt(pattern.length() + 1);
+			int patternEnd = patternStart + random.nextInt(pattern.length() - patternStart + 1);
+
+			assertEquals(
+					quadraticOverlap(text.substring(textStart, textEnd), pattern.substring(patternStart, patternEnd)),
+					TextOverlap.suffixPrefixOverlap(text, textStart, textEnd, pattern, patternStart, patternEnd));
+		}
+	}
+
+	@Test
+	void emptyRangesDoNotOverlap() {
+		assertEquals(0, TextOverlap.suffixPrefixOverlap("", 0, 0, "abc", 0, 3));
+		assertEquals(0, TextOverlap.suffixPrefixOverlap("abc", 0, 3, "", 0, 0));
+		assertEquals(0, TextOverlap.suffixPrefixOverlap("abc", 2, 2, "abc", 0, 3));
+	}
+}
@@ -2,15 +2,36 @@ package dev.aleiis.hintforge.assistant;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import dev.aleiis.hintforge.model.DslProfile;
 import dev.aleiis.hintforge.model.ExternalFile;
 import dev.aleiis.hintforge.preference.PreferenceManager;
+import dev.aleiis.hintforge.utils.TextOverlap;
+import dev.aleiis.hintforge.utils.TokenCounter;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.openai.OpenAiChatModel;
-import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
@@ -18,14 +39,21 @@ import dev.langchain4j.store.embedding.EmbeddingStore;
 
 public abstract class Assistant {
 
+	private static Logger logger = LoggerFactory.getLogger(Assistant.class);
+
 	private static String EMBEDDING_MODEL_NAME = "text-embedding-3-small";
+	private static final int VERIFICATION_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static final int LOCAL_CONTEXT_TOKENS = 256;
+	private static final Map<String, GrammarSlicer> grammarSlicers = new ConcurrentHashMap<>();
 	
 	private final Path homeFolder;
 	private final String openAiApiKey;
 	private final DslProfile dsl;
 	private final String modelName;
 	private EmbeddingStore<TextSegment> embeddingStore = null;
-	private final SyntaxVerifier verifier;
+	private RequestContext requestContext = new RequestContext();
+	private ChatModelProvider modelProvider;
+	private RetrievalQueryBuilder retrievalQueryBuilder = RetrievalQueryBuilder.COMPACT;
 
 	public Assistant(String openAiApiKey, DslProfile dsl) {
 		this(openAiApiKey, dsl, "gpt-4o-mini");
@@ -40,85 +68,426 @@ public abstract class Assistant {
 		this.openAiApiKey = openAiApiKey;
 		this.dsl = dsl;
 		this.modelName = modelName;
-		this.verifier = new SyntaxVerifier(dsl.getStandaloneSetupClass(), dsl.getFileExtension());
+		this.modelProvider = ModelProviders.getDefault(homeFolder);
 	}
 	
 	public void setEmbeddingStore(EmbeddingStore<TextSegment> embeddingStore) {
 		this.embeddingStore = embeddingStore;
 	}
 
-	protected OpenAiChatModel buildOpenAiChatModel(Double temperature) {
-		return OpenAiChatModel.builder().apiKey(openAiApiKey).modelName(modelName).temperature(temperature)
-				.build();
+	/**
+	 * Sets the context of the request served by this assistant. The assistant
+	 * stops as soon as the context is cancelled and reports its progress to it.
+	 */
+	public void setRequestContext(RequestContext requestContext) {
+		this.requestContext = (requestContext != null) ? requestContext : new RequestContext();
 	}
 
-	protected ContentRetriever buildContentRetriever(EmbeddingStore<TextSegment> embeddingStore,
-			EmbeddingModel embeddingModel, Integer maxResults, Double minScore) {
-		return EmbeddingStoreContentRetriever.builder().embeddingStore(embeddingStore).embeddingModel(embeddingModel)
-				.maxResults(maxResults).minScore(minScore).build();
+	protected RequestContext getRequestContext() {
+		return requestContext;
 	}
 
-	protected <T> T buildAssistant(Class<T> assistantClass, Double temperature) {
-		if (this.embeddingStore != null) {
-			EmbeddingModel embeddingModel = OpenAiEmbeddingModel.builder().apiKey(openAiApiKey).modelName(EMBEDDING_MODEL_NAME)
-					.build();
-			ContentRetriever contentRetriever = buildContentRetriever(embeddingStore, embeddingModel, 5, 0.75);
-			return AiServices.builder(assistantClass).chatLanguageModel(buildOpenAiChatModel(temperature))
-					.contentRetriever(contentRetriever).build();
-		} else {
-			return AiServices.builder(assistantClass).chatLanguageModel(buildOpenAiChatModel(temperature)).build();
+	/**
+	 * Runs a blocking LLM call through the request context, so that it is aborted
+	 * if the request is cancelled.
+	 */
+	protected <T> T call(Callable<T> action) {
+		return requestContext.call(action);
+	}
+
+	/**
+	 * Sets the provider of the models this assistant talks to. By default it is
+	 * selected by {@link ModelProviders#getDefault(Path)}.
+	 */
+	public void setModelProvider(ChatModelProvider modelProvider) {
+		this.modelProvider = modelProvider;
+	}
+
+	/**
+	 * Sets how the query that retrieves the documentation of the DSL is built.
+	 * By default it is {@link RetrievalQueryBuilder#COMPACT}.
+	 */
+	public void setRetrievalQueryBuilder(RetrievalQueryBuilder retrievalQueryBuilder) {
+		this.retrievalQueryBuilder = (retrievalQueryBuilder != null) ? retrievalQueryBuilder
+				: RetrievalQueryBuilder.COMPACT;
+	}
+
+	protected ChatLanguageModel buildChatModel(Double temperature) {
+		return AssistantServiceCache.getInstance().getOrCreate(List.of(ChatLanguageModel.class, modelProvider),
+				openAiApiKey, modelName, temperature, null,
+				() -> modelProvider.chatModel(openAiApiKey, modelName, temperature));
+	}
+
+	protected StreamingChatLanguageModel buildStreamingChatModel(Double temperature) {
+		return AssistantServiceCache.getInstance().getOrCreate(
+				List.of(StreamingChatLanguageModel.class, modelProvider), openAiApiKey, modelName, temperature, null,
+				() -> modelProvider.streamingChatModel(openAiApiKey, modelName, temperature));
+	}
+
+	/**
+	 * Builds the model that embeds queries. Its embeddings go through the
+	 * {@link EmbeddingCache}.
+	 */
+	protected EmbeddingModel buildEmbeddingModel() {
+		return AssistantServiceCache.getInstance().getOrCreate(List.of(EmbeddingModel.class, modelProvider),
+				openAiApiKey, EMBEDDING_MODEL_NAME, null, null, () -> EmbeddingCache.getInstance()
+						.wrap(modelProvider.embeddingModel(openAiApiKey, EMBEDDING_MODEL_NAME), modelProvider.getId(),
+								EMBEDDING_MODEL_NAME));
+	}
+
+	/**
+	 * Builds the {@link ResponseCache} key of a request of this assistant. Besides
+	 * the given inputs, the key covers the kind of assistant, the provider and
+	 * the model, the profile and its embedded documentation, so that changing
+	 * any of them misses the cache.
+	 * 
+	 * @param inputs Everything else the response depends on.
+	 */
+	protected String buildResponseCacheKey(String... inputs) {
+		List<String> parts = new ArrayList<>();
+		parts.add(getClass().getName());
+		parts.add(modelProvider.getId());
+		parts.add(modelName);
+		parts.add(dsl.getName());
+		parts.add(dsl.getDescription());
+		// The retrieved documentation changes whenever the embedded files do
+		if (hasEmbeddingStore()) {
+			parts.add(String.join(",", dsl.getEmbeddingManager().getEmbeddingIds()));
 		}
+		parts.addAll(Arrays.asList(inputs));
+		return ResponseCache.key(parts);
 	}
-	
-	protected String trimContextOverlap(String code, int offset, String suggestion) {
-		String codeBeforeOffset = code.substring(0, offset);
-		String codeAfterOffset = code.substring(offset);
-
-		int prefixLength = 0;
-		int maxPrefixLength = Math.min(suggestion.length(), codeBeforeOffset.length());
-		for (int i = 1; i <= maxPrefixLength; i++) {
-			if (suggestion.startsWith(codeBeforeOffset.substring(codeBeforeOffset.length() - i))) {
-				prefixLength = i;
-			}
+
+	/**
+	 * Runs an action with a {@link RetrievalSession} attached to the request, so
+	 * that every LLM call of the action reuses the same retrieved documentation.
+	 * The query of the session is built by the {@link RetrievalQueryBuilder} of
+	 * this assistant.
+	 * 
+	 * @param instruction The instruction of the user, or null if there is none.
+	 * @param focus       Builds the code the request is about, only if the
+	 *                    documentation is retrieved.
+	 * @param action      The action to run.
+	 */
+	protected <T> T withRetrievalSession(String instruction, Supplier<String> focus, Supplier<T> action) {
+		return withRetrievalSession(newRetrievalSession(instruction, focus), action);
+	}
+
+	protected RetrievalSession newRetrievalSession(String instruction, Supplier<String> focus) {
+		return new RetrievalSession(() -> retrievalQueryBuilder.build(instruction, focus.get()));
+	}
+
+	protected <T> T withRetrievalSession(RetrievalSession session, Supplier<T> action) {
+		RetrievalSession previous = requestContext.getRetrievalSession();
+		requestContext.setRetrievalSession(session);
+		try {
+			return action.get();
+		} finally {
+			requestContext.setRetrievalSession(previous);
 		}
+	}
 
-		suggestion = (suggestion.length() - prefixLength > 0) ? suggestion.substring(prefixLength) : "";
+	/**
+	 * Runs a request, or waits for the result of an identical one already running
+	 * (see {@link SingleFlight}).
+	 * 
+	 * @param key     The {@link ResponseCache} key of the request.
+	 * @param request Does the work of the request.
+	 */
+	protected <T> T coalesce(String key, Supplier<T> request) {
+		return SingleFlight.getInstance().run(key, requestContext, request);
+	}
+
+	/**
+	 * Opens a {@link Telemetry} span of the given stage for the current request.
+	 */
+	protected Telemetry.Span startSpan(Telemetry.Stage stage) {
+		return Telemetry.getInstance().start(stage, requestContext).profile(dsl.getName());
+	}
 
-		int suffixLength = 0;
-		int maxSuffixLength = Math.min(suggestion.length(), codeAfterOffset.length());
-		for (int i = 1; i <= maxSuffixLength; i++) {
-			if (suggestion.endsWith(codeAfterOffset.substring(0, i))) {
-				suffixLength = i;
+	/**
+	 * Builds the retriever of the documentation of the DSL. The time and size of
+	 * every retrieval are recorded in the {@link LatencyTracker} and as a
+	 * {@link Telemetry} span. If the request has a {@link RetrievalSession}, only
+	 * its first query is retrieved and later queries reuse the result.
+	 */
+	protected ContentRetriever buildContentRetriever(EmbeddingStore<TextSegment> embeddingStore,
+			EmbeddingModel embeddingModel, Integer maxResults, Double minScore) {
+		ContentRetriever retriever = EmbeddingStoreContentRetriever.builder().embeddingStore(embeddingStore)
+				.embeddingModel(embeddingModel).maxResults(maxResults).minScore(minScore).build();
+		String profileName = dsl.getName();
+		ContentRetriever measuredRetriever = query -> {
+			try (Telemetry.Span span = Telemetry.getInstance().start(Telemetry.Stage.RETRIEVAL,
+					RequestContext.current()).profile(profileName).payloadChars(query.text().length())) {
+				long start = System.nanoTime();
+				List<Content> contents = retriever.retrieve(query);
+				int tokens = 0;
+				for (Content content : contents) {
+					tokens += TokenCounter.count(content.textSegment().text());
+				}
+				LatencyTracker.getInstance().recordRetrieval((System.nanoTime() - start) / 1_000_000, tokens);
+				span.detail(String.format("%d segments", contents.size())).promptTokens(tokens);
+				return contents;
 			}
-		}
+		};
+		return query -> {
+			RequestContext context = RequestContext.current();
+			RetrievalSession session = (context != null) ? context.getRetrievalSession() : null;
+			if (session == null) {
+				return measuredRetriever.retrieve(query);
+			}
+			return session.retrieve(query, measuredRetriever);
+		};
+	}
+
+	protected <T> T buildAssistant(Class<T> assistantClass, Double temperature) {
+		return buildAssistant(assistantClass, temperature, true);
+	}
+
+	/**
+	 * Returns the AiServices proxy of the given interface. Proxies are cached per
+	 * (interface, provider, model, temperature, profile) in the
+	 * {@link AssistantServiceCache}.
+	 * 
+	 * @param retrieval Whether the documentation of the DSL is retrieved for each
+	 *                  call, if the profile has an embedding store.
+	 */
+	protected <T> T buildAssistant(Class<T> assistantClass, Double temperature, boolean retrieval) {
+		boolean withRetrieval = retrieval && this.embeddingStore != null;
+		String profileName = withRetrieval ? dsl.getName() : null;
+		return AssistantServiceCache.getInstance().getOrCreate(List.of(assistantClass, modelProvider), openAiApiKey,
+				modelName, temperature, profileName, () -> {
+					AiServices<T> builder = AiServices.builder(assistantClass)
+							.chatLanguageModel(buildChatModel(temperature));
+					if (withRetrieval) {
+						builder.contentRetriever(buildContentRetriever(embeddingStore, buildEmbeddingModel(), 5, 0.75));
+					}
+					return builder.build();
+				});
+	}
+	
+	protected <T> T buildStreamingAssistant(Class<T> assistantClass, Double temperature) {
+		return buildStreamingAssistant(assistantClass, temperature, true);
+	}
 
-		return suggestion.substring(0, suggestion.length() - suffixLength);
+	protected <T> T buildStreamingAssistant(Class<T> assistantClass, Double temperature, boolean retrieval) {
+		boolean withRetrieval = retrieval && this.embeddingStore != null;
+		String profileName = withRetrieval ? dsl.getName() : null;
+		return AssistantServiceCache.getInstance().getOrCreate(List.of(assistantClass, modelProvider), openAiApiKey,
+				modelName, temperature, profileName, () -> {
+					AiServices<T> builder = AiServices.builder(assistantClass)
+							.streamingChatLanguageModel(buildStreamingChatModel(temperature));
+					if (withRetrieval) {
+						builder.contentRetriever(buildContentRetriever(embeddingStore, buildEmbeddingModel(), 5, 0.75));
+					}
+					return builder.build();
+				});
+	}
+	
+	/**
+	 * Removes from the suggestion the text it repeats from the code around the
+	 * offset: the longest prefix that matches the end of the code before the
+	 * offset, and then the longest suffix that matches the start of the code after
+	 * it. Runs in linear time (see {@link TextOverlap}).
+	 */
+	protected String trimContextOverlap(CharSequence code, int offset, String suggestion) {
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.TRIM)) {
+			int prefixLength = TextOverlap.suffixPrefixOverlap(code, 0, offset, suggestion, 0, suggestion.length());
+			int suffixLength = TextOverlap.suffixPrefixOverlap(suggestion, prefixLength, suggestion.length(), code,
+					offset, code.length());
+			return suggestion.substring(prefixLength, suggestion.length() - suffixLength);
+		}
 	}
 
 	protected Path getHomeFolder() {
 		return homeFolder;
 	}
 
+	protected String getModelName() {
+		return modelName;
+	}
+
+	protected boolean hasEmbeddingStore() {
+		return embeddingStore != null;
+	}
+
 	protected DslProfile getDslProfile() {
 		return dsl;
 	}
 	
+	/**
+	 * Reads the grammar of the DSL for a prompt. If the profile has a grammar
+	 * token budget and the grammar exceeds it, only the rules relevant at the
+	 * cursor are kept (see {@link GrammarSlicer}).
+	 * 
+	 * @param code   Context of the code.
+	 * @param offset Offset of the cursor in the code.
+	 * 
+	 * @return The grammar, or null if it could not be read.
+	 */
+	protected String buildGrammarString(String code, int offset) {
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.PROMPT_ASSEMBLY).detail("grammar")) {
+			return buildGrammarString(code, offset, span);
+		}
+	}
+
+	private String buildGrammarString(String code, int offset, Telemetry.Span span) {
+		String grammar;
+		try {
+			grammar = dsl.getXtextFile().readContent(homeFolder);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		int tokenBudget = dsl.getGrammarTokenBudget();
+		if (tokenBudget <= 0) {
+			return grammar;
+		}
+
+		GrammarSlicer slicer = grammarSlicers.get(dsl.getName());
+		if (slicer == null || !slicer.getGrammar().equals(grammar)) {
+			slicer = new GrammarSlicer(grammar);
+			grammarSlicers.put(dsl.getName(), slicer);
+		}
+
+		List<String> startRules = withVerifier(verifier -> verifier.findRulesAt(code, offset));
+		GrammarSlicer.Slice slice = slicer.slice(startRules, tokenBudget);
+		logger.debug(String.format("Grammar sliced: %d -> %d tokens, saved %d (start rules: %s)",
+				slice.getGrammarTokens(), slice.getSliceTokens(), slice.getSavedTokens(), startRules));
+		span.promptTokens(slice.getSliceTokens());
+		return slice.getText();
+	}
+
+	/**
+	 * Extracts the part of the code around the cursor that fits in the context
+	 * token budget of the profile (see {@link ContextWindowExtractor}).
+	 * 
+	 * @param code   Context of the code.
+	 * @param offset Offset of the cursor in the code.
+	 * 
+	 * @return The context window.
+	 */
+	protected ContextWindowExtractor.Window buildContextWindow(String code, int offset) {
+		return buildContextWindow(code, offset, dsl.getContextTokenBudget());
+	}
+
+	protected ContextWindowExtractor.Window buildContextWindow(String code, int offset, int tokenBudget) {
+		ContextWindowExtractor.Window window = ContextWindowExtractor.extract(code, offset,
+				() -> withVerifier(verifier -> verifier.findEnclosingRegions(code, offset)), tokenBudget);
+		if (window.getText().length() < code.length()) {
+			logger.debug(String.format("Context windowed: %d -> %d tokens (offset %d, length %d)",
+					window.getDocumentTokens(), window.getWindowTokens(), window.getStart(), window.getText().length()));
+		}
+		return window;
+	}
+
+	/**
+	 * Marks the cursor in a small window of code around it, used to build compact
+	 * retrieval queries and to compare requests.
+	 */
+	protected String buildLocalContext(String code, int offset) {
+		return buildContextWindow(code, offset, LOCAL_CONTEXT_TOKENS).mark("[[CURSOR]]");
+	}
+
+	/**
+	 * @return The local context of {@link #buildLocalContext(String, int)}, built
+	 *         the first time it is needed and shared afterwards.
+	 */
+	protected Supplier<String> lazyLocalContext(String code, int offset) {
+		AtomicReference<String> localContext = new AtomicReference<>();
+		return () -> localContext.updateAndGet(
+				context -> (context != null) ? context : buildLocalContext(code, offset));
+	}
+
 	protected String buildExamplesString() {
-		List<ExternalFile> scriptExamples = dsl.getScriptExamples();
-		StringBuilder examples = new StringBuilder();
-		for (int i = 0; i < scriptExamples.size(); i++) {
-			try {
-				String content = scriptExamples.get(i).readContent(homeFolder);
-				examples.append(String.format("### Example %d\n%s\n", i + 1, content));
-			} catch (IOException e) {
-				e.printStackTrace();
-				return null;
+		return buildExamplesString(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Builds the examples section of the prompts with at most
+	 * {@code maxExamples} example scripts.
+	 * 
+	 * @return The examples, or null if they could not be read.
+	 */
+	protected String buildExamplesString(int maxExamples) {
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.PROMPT_ASSEMBLY).detail("examples")) {
+			List<ExternalFile> scriptExamples = dsl.getScriptExamples();
+			StringBuilder examples = new StringBuilder();
+			for (int i = 0; i < scriptExamples.size() && i < maxExamples; i++) {
+				try {
+					String content = scriptExamples.get(i).readContent(homeFolder);
+					examples.append(String.format("### Example %d\n%s\n", i + 1, content));
+				} catch (IOException e) {
+					e.printStackTrace();
+					return null;
+				}
 			}
+			return examples.toString();
 		}
-		return examples.toString();
 	}
 	
-	protected SyntaxVerifier getVerifier() {
-		return verifier;
+	/**
+	 * Runs an action with a pooled verifier of the DSL. The verifier is confined
+	 * to the action and is given back to the {@link SyntaxVerifierRegistry}
+	 * afterwards.
+	 * 
+	 * @param action The action to run with the verifier.
+	 * 
+	 * @return The result of the action.
+	 */
+	protected <R> R withVerifier(Function<SyntaxVerifier, R> action) {
+		requestContext.checkActive();
+		SyntaxVerifierRegistry registry = SyntaxVerifierRegistry.getInstance();
+		SyntaxVerifier verifier = registry.acquire(dsl.getStandaloneSetupClass(), dsl.getFileExtension());
+		try {
+			return action.apply(verifier);
+		} finally {
+			registry.release(dsl.getStandaloneSetupClass(), verifier);
+		}
+	}
+
+	/**
+	 * Runs an action over every item in parallel, each one on its own virtual
+	 * thread with a pooled verifier confined to it. At most
+	 * {@link #VERIFICATION_PARALLELISM} verifiers are in use at the same time.
+	 * 
+	 * @param items  The items to process.
+	 * @param action The action to run with a verifier for each item.
+	 * 
+	 * @return The results of the action, in the same order as the items.
+	 */
+	protected <T, R> List<R> withVerifiers(List<T> items, BiFunction<SyntaxVerifier, T, R> action) {
+		Semaphore permits = new Semaphore(VERIFICATION_PARALLELISM);
+		List<Future<R>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (T item : items) {
+				futures.add(executor.submit(() -> {
+					permits.acquire();
+					try {
+						return withVerifier(verifier -> action.apply(verifier, item));
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+
+			List<R> results = new ArrayList<>();
+			for (Future<R> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while verifying in parallel", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CancellationException cancellation) {
+				throw cancellation;
+			}
+			if (e.getCause() instanceof RequestTimeoutException timeout) {
+				throw timeout;
+			}
+			throw new RuntimeException("Failed verifying in parallel", e.getCause());
+		}
 	}
 }
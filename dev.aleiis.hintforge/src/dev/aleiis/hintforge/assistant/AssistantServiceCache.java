@@ -0,0 +1,120 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the chat models, embedding models and AiServices proxies built by the
+ * assistants, so they are not rebuilt for every LLM call.
+ *
+ * The cached objects are stateless (no chat memory), so they can be shared by
+ * every assistant that uses the same service interface, model, temperature and
+ * profile. The cache must be invalidated whenever the preferences they were
+ * built from change.
+ */
+public class AssistantServiceCache {
+
+	private static AssistantServiceCache instance;
+
+	private final Map<Key, Object> entries = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private AssistantServiceCache() {
+	}
+
+	public static synchronized AssistantServiceCache getInstance() {
+		if (instance == null) {
+			instance = new AssistantServiceCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the cached object for the given key, building it if needed.
+	 *
+	 * @param kind        The service interface or the kind of model.
+	 * @param apiKey      The API key the object is built with.
+	 * @param modelName   The model name.
+	 * @param temperature The temperature, or null if it does not apply.
+	 * @param profileName The DSL profile, or null if the object does not depend on
+	 *                    it.
+	 * @param factory     Builds the object on a cache miss.
+	 *
+	 * @return The cached object.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getOrCreate(Object kind, String apiKey, String modelName, Double temperature, String profileName,
+			Supplier<T> factory) {
+		Key key = new Key(kind, apiKey, modelName, temperature, profileName);
+		Object cached = entries.get(key);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return (T) cached;
+		}
+		misses.incrementAndGet();
+		// Built outside the map, since factories may request other cached objects
+		T created = factory.get();
+		Object existing = entries.putIfAbsent(key, created);
+		return (existing != null) ? (T) existing : created;
+	}
+
+	/**
+	 * Drops every cached object. Called when the API key, the model or the DSL
+	 * profiles change.
+	 */
+	public void invalidate() {
+		entries.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static final class Key {
+
+		private final Object kind;
+		private final String apiKey;
+		private final String modelName;
+		private final Double temperature;
+		private final String profileName;
+
+		private Key(Object kind, String apiKey, String modelName, Double temperature, String profileName) {
+			this.kind = kind;
+			this.apiKey = apiKey;
+			this.modelName = modelName;
+			this.temperature = temperature;
+			this.profileName = profileName;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key other)) {
+				return false;
+			}
+			return Objects.equals(kind, other.kind) && Objects.equals(apiKey, other.apiKey)
+					&& Objects.equals(modelName, other.modelName) && Objects.equals(temperature, other.temperature)
+					&& Objects.equals(profileName, other.profileName);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(kind, apiKey, modelName, temperature, profileName);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package dev.aleiis.hintforge.assistant;
+
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+/**
+ * Builds the models the assistants talk to. The default provider talks to
+ * OpenAI; others record the traffic or replay it offline (see
+ * {@link ModelProviders}).
+ *
+ * Models are cached by the assistants per provider instance, so providers are
+ * expected to be long-lived.
+ */
+public interface ChatModelProvider {
+
+	/**
+	 * @return Identifies where the responses of the models come from. Cached
+	 *         responses and embeddings are keyed by it.
+	 */
+	String getId();
+
+	ChatLanguageModel chatModel(String apiKey, String modelName, Double temperature);
+
+	StreamingChatLanguageModel streamingChatModel(String apiKey, String modelName, Double temperature);
+
+	EmbeddingModel embeddingModel(String apiKey, String modelName);
+}
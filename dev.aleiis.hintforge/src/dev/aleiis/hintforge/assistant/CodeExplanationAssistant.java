@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 
 import dev.aleiis.hintforge.model.DslProfile;
+import dev.aleiis.hintforge.utils.TokenCounter;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
@@ -69,21 +70,43 @@ public class CodeExplanationAssistant extends Assistant {
 		DslProfile dsl = getDslProfile();
 		
 		String grammar;
-		try {
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.PROMPT_ASSEMBLY).detail("grammar")) {
 			grammar = dsl.getXtextFile().readContent(getHomeFolder());
 		} catch (IOException e) {
 			e.printStackTrace();
 			return null;
 		}
 
-		String markedCode;
-		if (selection != null && !selection.isBlank()) {
-			markedCode = fullCode.replace(selection, " [[START]] " + selection + " [[END]] ");
-		} else {
-			markedCode = fullCode;
+		String markedCode = (selection != null && !selection.isBlank())
+				? fullCode.replace(selection, " [[START]] " + selection + " [[END]] ")
+				: fullCode;
+
+		ResponseCache responseCache = ResponseCache.getInstance();
+		String cacheKey = buildResponseCacheKey(grammar, markedCode);
+		String cached = responseCache.get(cacheKey);
+		if (cached != null) {
+			return cached;
 		}
 
+		// The documentation is retrieved for the selected fragment, not the whole code
+		String focus = (selection != null && !selection.isBlank()) ? selection : fullCode;
+		String explanation = coalesce(cacheKey,
+				() -> withRetrievalSession(null, () -> focus, () -> explainUncached(markedCode, grammar)));
+		responseCache.put(cacheKey, explanation);
+		return explanation;
+	}
+
+	private String explainUncached(String markedCode, String grammar) {
+		DslProfile dsl = getDslProfile();
+
+		getRequestContext().progress("Explaining code");
 		CodeExplanationService assistant = buildAssistant(CodeExplanationService.class, 0.6);
-		return assistant.explain(markedCode, dsl.getName(), dsl.getDescription(), grammar);
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.LLM_CALL).detail("explanation")
+				.promptTokens(TokenCounter.count(markedCode) + TokenCounter.count(grammar))) {
+			String explanation = call(() -> assistant.explain(markedCode, dsl.getName(), dsl.getDescription(),
+					grammar));
+			span.completionTokens(TokenCounter.count(explanation));
+			return explanation;
+		}
 	}
 }
@@ -3,18 +3,34 @@ package dev.aleiis.hintforge.assistant;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import dev.aleiis.hintforge.model.ContextAwareCompletionConfig;
 import dev.aleiis.hintforge.model.DslProfile;
+import dev.aleiis.hintforge.utils.TokenCounter;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
 
 interface ContextAwareCompletionService {
-	@SystemMessage("""
+
+	String SYSTEM_MESSAGE = """
 			## INSTRUCTIONS
 			- You are a code-completion assistant specialized in Domain-Specific Languages (DSLs).
 			- Locate the marker `[[CURSOR]]` in the user’s code and return **only** the fragment that should replace it.
@@ -34,12 +50,21 @@ interface ContextAwareCompletionService {
 
 			## EXAMPLE SCRIPTS
 			{{examples}}
-			      """)
+			      """;
+
+	@SystemMessage(SYSTEM_MESSAGE)
 	String chat(@UserMessage String userMessage, @V("name") String name, @V("description") String description,
 			@V("grammar") String grammar, @V("examples") String examples, @V("code") String code,
 			@V("instruction") String instruction);
 }
 
+interface ContextAwareCompletionStreamingService {
+	@SystemMessage(ContextAwareCompletionService.SYSTEM_MESSAGE)
+	TokenStream chat(@UserMessage String userMessage, @V("name") String name, @V("description") String description,
+			@V("grammar") String grammar, @V("examples") String examples, @V("code") String code,
+			@V("instruction") String instruction);
+}
+
 interface FixErrorsContextAwareCompletionService {
 	@SystemMessage("""
 			## INSTRUCTIONS
@@ -74,6 +99,14 @@ public class ContextAwareCompletionAssistant extends Assistant {
 
 	private static Logger logger = LoggerFactory.getLogger(ContextAwareCompletionAssistant.class);
 
+	private static final int NARROW_CONTEXT_MIN_TOKENS = 256;
+
+	/**
+	 * How long the attempts that lost a speculative race are given to stop once
+	 * they are cancelled.
+	 */
+	private static final long LOSING_ATTEMPTS_GRACE_MILLIS = 1000;
+
 	public ContextAwareCompletionAssistant(String openAiApiKey, DslProfile dsl) {
 		super(openAiApiKey, dsl);
 	}
@@ -99,91 +132,248 @@ public class ContextAwareCompletionAssistant extends Assistant {
 	 * @throws IOException If there was an error reading the Xtext file.
 	 */
 	public String suggest(String instruction, String code, int offset) {
+		return suggest(instruction, code, offset, null);
+	}
+
+	/**
+	 * Method used to generate a new suggestion while streaming the first
+	 * generation attempt.
+	 * 
+	 * The partial fragment is passed to {@code partialListener} as it arrives. If
+	 * the fragment becomes unrecoverable (see {@link FragmentPrefixChecker}), the
+	 * stream is closed and the fix loop starts with the fragment received so far.
+	 * Streaming is only used when the generation attempts run sequentially.
+	 * 
+	 * If the profile sets a latency budget and it runs out, the suggestion with
+	 * the fewest parsing errors verified so far is returned. With adaptive
+	 * degradation, parts of the prompt are dropped up front when the request is
+	 * projected to miss the budget (see {@link DegradationLevel}).
+	 * 
+	 * Repeated requests are answered from the {@link ResponseCache}. If the
+	 * profile sets a reuse similarity, the suggestion of a similar request is
+	 * reused as long as it is still valid in the current code (see
+	 * {@link SemanticCache}).
+	 * 
+	 * @param instruction     User's instructions.
+	 * @param code            Context of the code.
+	 * @param offset          Offset in the code where the code suggestion must be
+	 *                        inserted.
+	 * @param partialListener Receives the partial fragment, or null to disable
+	 *                        streaming.
+	 * 
+	 * @return The suggested code.
+	 */
+	public String suggest(String instruction, String code, int offset, Consumer<String> partialListener) {
 		DslProfile dsl = this.getDslProfile();
 		ContextAwareCompletionConfig config = dsl.getCodeCompletionConfig();
 
-		String grammar;
-		try {
-			grammar = dsl.getXtextFile().readContent(getHomeFolder());
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
+		if (config.getLatencyBudgetMillis() > 0) {
+			getRequestContext().limitTo(config.getLatencyBudgetMillis());
 		}
 
-		String markedCode = code.substring(0, offset) + "[[CURSOR]]" + code.substring(offset);
+		String grammar = buildGrammarString(code, offset);
+		if (grammar == null) return null;
+
+		ContextWindowExtractor.Window window = buildContextWindow(code, offset);
 
 		String examples = buildExamplesString();
 		if (examples == null) return null;
 
-		int maxGenerationAttempts = config.getMaxGenerationAttempts();
-		int maxFixAttempts = config.getMaxFixAttempts();
+		ResponseCache responseCache = ResponseCache.getInstance();
+		String cacheKey = buildResponseCacheKey(config.getFewShotPrompt(), grammar, examples,
+				window.mark("[[CURSOR]]"), instruction);
+		String cached = responseCache.get(cacheKey);
+		if (cached != null) {
+			logger.debug("Suggestion found in the response cache");
+			return cached;
+		}
 
-		logger.debug("GENERATING A NEW SUGGESTION");
+		return coalesce(cacheKey,
+				() -> suggestUncached(instruction, code, offset, window, grammar, examples, cacheKey, partialListener));
+	}
 
-		String suggestion = "";
-		List<String> errors;
-		for (int generationAttempt = 0; generationAttempt < maxGenerationAttempts; generationAttempt++) {
+	/**
+	 * Serves a request that missed the response cache: reuses the suggestion of a
+	 * similar request, if enabled, or generates a new one.
+	 */
+	private String suggestUncached(String instruction, String code, int offset, ContextWindowExtractor.Window window,
+			String grammar, String examples, String cacheKey, Consumer<String> partialListener) {
+		ContextAwareCompletionConfig config = getDslProfile().getCodeCompletionConfig();
+		ResponseCache responseCache = ResponseCache.getInstance();
+		// Only built for the semantic cache or the retrieval, if they are used
+		Supplier<String> localContext = lazyLocalContext(code, offset);
+
+		String semanticScope = null;
+		float[] requestVector = null;
+		if (config.getSemanticCacheSimilarity() > 0) {
+			semanticScope = buildResponseCacheKey(config.getFewShotPrompt());
+			requestVector = embedRequest(instruction, localContext.get());
+			String reused = reuseSimilarSuggestion(semanticScope, requestVector, code, offset, window,
+					config.getSemanticCacheSimilarity() / 100.0);
+			if (reused != null) {
+				responseCache.put(cacheKey, reused);
+				return reused;
+			}
+		}
 
-			double temperature = (generationAttempt == 0) ? 0.3 : 0.5;
+		CompletionSession session = new CompletionSession(instruction, code, offset, window, grammar, examples,
+				DegradationLevel.FULL);
+		if (config.isAdaptiveDegradation() && config.getLatencyBudgetMillis() > 0) {
+			session = degrade(session);
+			if (session == null) return null;
+		}
+		LatencyTracker.getInstance().recordLevel(session.level);
+		logger.debug(String.format("Degradation level: %s (%d prompt tokens)", session.level, session.promptTokens));
+
+		// Every attempt of the session reuses the documentation retrieved for the
+		// instruction and the code around the cursor
+		RetrievalSession retrieval = newRetrievalSession(instruction, localContext);
+		RequestContext context = getRequestContext();
+		RetrievalSession previousRetrieval = context.getRetrievalSession();
+		context.setRetrievalSession(retrieval);
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.SESSION).detail(session.level.toString())
+				.promptTokens(session.promptTokens).payloadChars(session.window.getText().length())) {
+			String suggestion;
+			try {
+				suggestion = generate(session, partialListener);
+			} catch (RequestTimeoutException e) {
+				suggestion = session.getBestSuggestion();
+				if (suggestion == null) {
+					throw e;
+				}
+				logger.debug(String.format(
+						"Latency budget exhausted, returning the best suggestion so far (%d errors)",
+						session.getBestErrorCount()));
+			}
+			if (suggestion != null) {
+				span.completionTokens(TokenCounter.count(suggestion));
+			}
+			// Only suggestions that passed verification are worth repeating
+			if (session.getBestErrorCount() == 0) {
+				responseCache.put(cacheKey, suggestion);
+				if (requestVector != null) {
+					SemanticCache.getInstance().put(semanticScope, requestVector, suggestion);
+				}
+			}
+			return suggestion;
+		} finally {
+			context.setRetrievalSession(previousRetrieval);
+			logger.debug(
+					String.format("Retrieved documentation reused by %d calls", retrieval.getReuseCount()));
+		}
+	}
 
-			ContextAwareCompletionService codeCompletionService = buildAssistant(ContextAwareCompletionService.class,
-					temperature);
+	/**
+	 * Embeds the instruction and the code near the cursor, normalized, to look
+	 * for similar requests in the {@link SemanticCache}.
+	 */
+	private float[] embedRequest(String instruction, String localContext) {
+		String text = SemanticCache.normalize(instruction, localContext);
+		EmbeddingModel embeddingModel = buildEmbeddingModel();
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.RETRIEVAL).detail("semantic cache")
+				.payloadChars(text.length())) {
+			return call(() -> embeddingModel.embed(text).content().vector());
+		}
+	}
+
+	/**
+	 * Looks for the suggestion of a similar request and verifies it against the
+	 * current code.
+	 * 
+	 * @return The suggestion, trimmed against the current code, or null if there
+	 *         is none or it is no longer valid.
+	 */
+	private String reuseSimilarSuggestion(String scope, float[] vector, String code, int offset,
+			ContextWindowExtractor.Window window, double threshold) {
+		String candidate = SemanticCache.getInstance().find(scope, vector, threshold);
+		if (candidate == null) {
+			return null;
+		}
 
-			suggestion = codeCompletionService.chat(config.getFewShotPrompt(), dsl.getName(), dsl.getDescription(),
-					grammar, examples, markedCode, instruction);
-			logger.debug(String.format("Suggestion generated (generationAttempt: %d) -->\n%s", generationAttempt,
+		String suggestion = trimContextOverlap(window.getText(), window.getOffset(), candidate);
+		List<String> errors;
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.VALIDATION).detail("semantic cache")
+				.payloadChars(code.length() + suggestion.length())) {
+			errors = withVerifier(verifier -> verifier.validateInsertion(code, offset, suggestion, true));
+		}
+		if (!errors.isEmpty()) {
+			logger.debug(String.format("Similar suggestion rejected, %d parsing errors -->\n%s", errors.size(),
 					suggestion));
+			return null;
+		}
+		logger.debug(String.format("Reusing the suggestion of a similar request -->\n%s", suggestion));
+		return suggestion;
+	}
 
-			errors = buildAndVerify(code, offset, suggestion);
-			if (errors.isEmpty()) {
-				logger.debug("Suggestion accepted!");
-				return suggestion;
-			} else {
-				logger.debug(String.format("Parsing errors found (generationAttempt: %d) -->\n%s", generationAttempt,
-						errors.stream().reduce((a, b) -> a + "\n" + b)));
+	/**
+	 * Walks down the degradation ladder until the projected latency of the
+	 * request fits in the time left. A request is projected as a generation call
+	 * plus a fix call, if fixes are enabled. Without latency data the prompt is
+	 * kept whole.
+	 * 
+	 * @return The session with the chosen level, or null if the DSL files could
+	 *         not be read.
+	 */
+	private CompletionSession degrade(CompletionSession session) {
+		ContextAwareCompletionConfig config = getDslProfile().getCodeCompletionConfig();
+		LatencyTracker tracker = LatencyTracker.getInstance();
+		int calls = (config.getMaxFixAttempts() > 0) ? 2 : 1;
+		long remainingMillis = getRequestContext().getRemainingMillis();
+
+		CompletionSession candidate = session;
+		for (DegradationLevel level : DegradationLevel.values()) {
+			String examples = candidate.examples;
+			ContextWindowExtractor.Window window = candidate.window;
+			if (level == DegradationLevel.FEW_EXAMPLES) {
+				examples = buildExamplesString(1);
+				if (examples == null) return null;
+			} else if (level == DegradationLevel.NARROW_CONTEXT) {
+				window = buildContextWindow(session.code, session.offset,
+						Math.max(NARROW_CONTEXT_MIN_TOKENS, window.getWindowTokens() / 4));
 			}
+			candidate = new CompletionSession(session.instruction, session.code, session.offset, window,
+					session.grammar, examples, level);
 
-			for (int fixAttempt = 0; fixAttempt < maxFixAttempts; fixAttempt++) {
+			boolean retrieving = candidate.isRetrieving() && hasEmbeddingStore();
+			long estimate = tracker.estimateMillis(getModelName(), candidate.promptTokens, retrieving);
+			if (estimate < 0) {
+				return session;
+			}
+			logger.debug(String.format("Projected latency at %s: %d ms x %d calls, %d ms left", level, estimate,
+					calls, remainingMillis));
+			if (estimate * calls <= remainingMillis) {
+				return candidate;
+			}
+		}
+		return candidate;
+	}
 
-				suggestion = trimContextOverlap(code, offset, suggestion);
-				logger.debug(String.format("Suggestion trimmed (generationAttempt: %d, fixAttempt: %d) -->\n%s",
-						generationAttempt, fixAttempt, suggestion));
+	private String generate(CompletionSession session, Consumer<String> partialListener) {
+		ContextAwareCompletionConfig config = getDslProfile().getCodeCompletionConfig();
+		int maxGenerationAttempts = config.getMaxGenerationAttempts();
+		int maxFixAttempts = config.getMaxFixAttempts();
+		int fanOut = Math.min(config.getMaxSpeculativeFanOut(), maxGenerationAttempts);
 
-				errors = buildAndVerify(code, offset, suggestion);
-				if (errors.isEmpty()) {
-					logger.debug("Suggestion accepted!");
-					return suggestion;
-				} else {
-					logger.debug(String.format(
-							"Parsing errors found after trimming (generationAttempt: %d, fixAttempt: %d) -->\n%s",
-							generationAttempt, fixAttempt, errors.stream().reduce((a, b) -> a + "\n" + b)));
-				}
+		logger.debug("GENERATING A NEW SUGGESTION");
 
-				suggestion = fixSuggestion(code, offset, suggestion, errors, temperature);
-				if (suggestion == null) return null;
-				logger.debug(String.format("Suggestion fixed (generationAttempt: %d, fixAttempt: %d) -->\n%s",
-						generationAttempt, fixAttempt, suggestion));
-
-				errors = buildAndVerify(code, offset, suggestion);
-				if (errors.isEmpty()) {
-					logger.debug("Suggestion accepted!");
-					return suggestion;
-				} else {
-					logger.debug(String.format(
-							"Parsing errors found after fixing (generationAttempt: %d, fixAttempt: %d) -->\n%s",
-							generationAttempt, fixAttempt, errors.stream().reduce((a, b) -> a + "\n" + b)));
-				}
-			}
+		GenerationResult result;
+		if (fanOut > 1) {
+			result = generateSpeculatively(session, fanOut);
+		} else {
+			result = generateSequentially(session, partialListener);
 		}
+		if (result == null) return null;
+		if (result.valid) return result.suggestion;
 
 		logger.debug(
 				String.format("No valid suggestion found in %d generation attempts with %d fixing attempts each...",
 						maxGenerationAttempts, maxFixAttempts));
 
-		suggestion = trimContextOverlap(code, offset, suggestion);
+		String suggestion = trimContextOverlap(session.window.getText(), session.window.getOffset(),
+				result.suggestion);
 		logger.debug(String.format("Suggestion after last trimming -->\n%s", suggestion));
 
-		errors = buildAndVerify(code, offset, suggestion);
+		List<String> errors = buildAndVerify(session, -1, suggestion);
 		if (errors.isEmpty()) {
 			logger.debug("Suggestion accepted!");
 			return suggestion;
@@ -196,20 +386,276 @@ public class ContextAwareCompletionAssistant extends Assistant {
 		return suggestion;
 	}
 
-	private String fixSuggestion(String code, int offset, String suggestion, List<String> errorList, Double temperature) {
+	private GenerationResult generateSequentially(CompletionSession session, Consumer<String> partialListener) {
+		int maxGenerationAttempts = getDslProfile().getCodeCompletionConfig().getMaxGenerationAttempts();
 
-		DslProfile dsl = this.getDslProfile();
+		GenerationResult result = null;
+		for (int generationAttempt = 0; generationAttempt < maxGenerationAttempts; generationAttempt++) {
+			getRequestContext().checkActive();
+			result = runGenerationAttempt(session, generationAttempt,
+					(generationAttempt == 0) ? partialListener : null);
+			if (result == null || result.valid) {
+				return result;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Launches up to {@code fanOut} generation attempts at the same time and
+	 * returns the first one that produces a valid suggestion. The remaining
+	 * attempts are cancelled. An attempt that fails is replaced by the next one,
+	 * and the failure is only thrown if every attempt failed. If no attempt
+	 * succeeds, the result of the last attempt to finish is returned.
+	 *
+	 * Once the race is decided, the attempts still running can no longer offer
+	 * suggestions to the session or record their latency, and they are waited
+	 * for a short time so that their spans belong to this call.
+	 */
+	private GenerationResult generateSpeculatively(CompletionSession session, int fanOut) {
+		int maxGenerationAttempts = getDslProfile().getCodeCompletionConfig().getMaxGenerationAttempts();
 
-		String grammar;
+		AtomicBoolean raceDecided = new AtomicBoolean(false);
+		CompletionSession raceSession = session.forRace(raceDecided);
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		CompletionService<GenerationResult> completionService = new ExecutorCompletionService<>(executor);
 		try {
-			grammar = dsl.getXtextFile().readContent(getHomeFolder());
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
+			int submitted = 0;
+			for (; submitted < fanOut; submitted++) {
+				int generationAttempt = submitted;
+				completionService.submit(() -> runGenerationAttempt(raceSession, generationAttempt, null));
+			}
+
+			GenerationResult last = null;
+			Throwable lastFailure = null;
+			int failures = 0;
+			for (int finished = 0; finished < submitted; finished++) {
+				try {
+					GenerationResult result = completionService.take().get();
+					if (result == null || result.valid) {
+						return result;
+					}
+					last = result;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof CancellationException cancellation) {
+						throw cancellation;
+					}
+					if (e.getCause() instanceof RequestTimeoutException timeout) {
+						throw timeout;
+					}
+					failures++;
+					lastFailure = e.getCause();
+					logger.debug(String.format("Generation attempt failed (%d failures): %s", failures, lastFailure));
+				}
+
+				if (submitted < maxGenerationAttempts) {
+					int generationAttempt = submitted++;
+					completionService.submit(() -> runGenerationAttempt(raceSession, generationAttempt, null));
+				}
+			}
+			if (failures == submitted) {
+				throw new RuntimeException("Failed generating a suggestion", lastFailure);
+			}
+			return last;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while generating suggestions", e);
+		} finally {
+			session.decideRace(raceDecided);
+			executor.shutdownNow();
+			awaitLosingAttempts(executor);
+		}
+	}
+
+	private void awaitLosingAttempts(ExecutorService executor) {
+		try {
+			if (!executor.awaitTermination(LOSING_ATTEMPTS_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+				logger.debug("Losing generation attempts still running after the grace period");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+	}
+
+	/**
+	 * Generates a suggestion and tries to fix it until it is valid or the fix
+	 * attempts are exhausted. Every verified suggestion is offered to the session
+	 * as a fallback for when the latency budget runs out.
+	 * 
+	 * @return The last suggestion and whether it is valid, or null if the DSL
+	 *         files could not be read.
+	 */
+	private GenerationResult runGenerationAttempt(CompletionSession session, int generationAttempt,
+			Consumer<String> partialListener) {
+		DslProfile dsl = this.getDslProfile();
+		ContextAwareCompletionConfig config = dsl.getCodeCompletionConfig();
+		int maxFixAttempts = config.getMaxFixAttempts();
+		ContextWindowExtractor.Window window = session.window;
+
+		double temperature = (generationAttempt == 0) ? 0.3 : 0.5;
+
+		getRequestContext().progress(String.format("Generating suggestion (attempt %d)", generationAttempt + 1));
+
+		String suggestion;
+		if (partialListener != null) {
+			suggestion = streamSuggestion(session, temperature, partialListener);
+		} else {
+			ContextAwareCompletionService codeCompletionService = buildAssistant(ContextAwareCompletionService.class,
+					temperature, session.isRetrieving());
+			try (Telemetry.Span span = startSpan(Telemetry.Stage.LLM_CALL).detail("generate")
+					.attempt(generationAttempt).promptTokens(session.promptTokens)) {
+				boolean retrievedBefore = hasRetrieved();
+				long start = System.nanoTime();
+				suggestion = call(() -> codeCompletionService.chat(config.getFewShotPrompt(), dsl.getName(),
+						dsl.getDescription(), session.grammar, session.examples, window.mark("[[CURSOR]]"),
+						session.instruction));
+				session.checkRace();
+				recordCall(session, retrievedBefore, start, -1);
+				span.completionTokens(TokenCounter.count(suggestion));
+			}
+		}
+		logger.debug(String.format("Suggestion generated (generationAttempt: %d) -->\n%s", generationAttempt,
+				suggestion));
+
+		List<String> errors = buildAndVerify(session, generationAttempt, suggestion);
+		if (errors.isEmpty()) {
+			logger.debug("Suggestion accepted!");
+			return new GenerationResult(suggestion, true);
+		} else {
+			logger.debug(String.format("Parsing errors found (generationAttempt: %d) -->\n%s", generationAttempt,
+					errors.stream().reduce((a, b) -> a + "\n" + b)));
+		}
+
+		for (int fixAttempt = 0; fixAttempt < maxFixAttempts; fixAttempt++) {
+			getRequestContext().checkActive();
+			session.checkRace();
+			getRequestContext().progress(String.format("Fixing suggestion (attempt %d, fix %d)", generationAttempt + 1,
+					fixAttempt + 1));
+
+			suggestion = trimContextOverlap(window.getText(), window.getOffset(), suggestion);
+			logger.debug(String.format("Suggestion trimmed (generationAttempt: %d, fixAttempt: %d) -->\n%s",
+					generationAttempt, fixAttempt, suggestion));
+
+			errors = buildAndVerify(session, generationAttempt, suggestion);
+			if (errors.isEmpty()) {
+				logger.debug("Suggestion accepted!");
+				return new GenerationResult(suggestion, true);
+			} else {
+				logger.debug(String.format(
+						"Parsing errors found after trimming (generationAttempt: %d, fixAttempt: %d) -->\n%s",
+						generationAttempt, fixAttempt, errors.stream().reduce((a, b) -> a + "\n" + b)));
+			}
+
+			suggestion = fixSuggestion(session, generationAttempt, suggestion, errors, temperature);
+			if (suggestion == null) return null;
+			logger.debug(String.format("Suggestion fixed (generationAttempt: %d, fixAttempt: %d) -->\n%s",
+					generationAttempt, fixAttempt, suggestion));
+
+			errors = buildAndVerify(session, generationAttempt, suggestion);
+			if (errors.isEmpty()) {
+				logger.debug("Suggestion accepted!");
+				return new GenerationResult(suggestion, true);
+			} else {
+				logger.debug(String.format(
+						"Parsing errors found after fixing (generationAttempt: %d, fixAttempt: %d) -->\n%s",
+						generationAttempt, fixAttempt, errors.stream().reduce((a, b) -> a + "\n" + b)));
+			}
+		}
+
+		return new GenerationResult(suggestion, false);
+	}
+
+	private String streamSuggestion(CompletionSession session, double temperature, Consumer<String> partialListener) {
+		DslProfile dsl = this.getDslProfile();
+		ContextAwareCompletionConfig config = dsl.getCodeCompletionConfig();
+
+		ContextAwareCompletionStreamingService streamingService = buildStreamingAssistant(
+				ContextAwareCompletionStreamingService.class, temperature, session.isRetrieving());
+
+		FragmentPrefixChecker checker = new FragmentPrefixChecker(session.code.substring(0, session.offset));
+		CompletableFuture<String> result = new CompletableFuture<>();
+		AtomicLong ttftMillis = new AtomicLong(-1);
+		AtomicBoolean aborted = new AtomicBoolean(false);
+
+		// Closed when the suggestion is returned, aborted or cancelled, so that the
+		// model stops generating tokens nobody reads
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.LLM_CALL).detail("generate (streamed)").attempt(0)
+				.promptTokens(session.promptTokens); StreamingCall streamingCall = new StreamingCall()) {
+			boolean retrievedBefore = hasRetrieved();
+			long start = System.nanoTime();
+			// Built through the request context, so the retrieval is attributed to it
+			TokenStream stream = call(() -> streamingService.chat(config.getFewShotPrompt(), dsl.getName(),
+					dsl.getDescription(), session.grammar, session.examples, session.window.mark("[[CURSOR]]"),
+					session.instruction));
+			streamingCall.start(() -> stream.onPartialResponse(token -> {
+				if (result.isDone()) return;
+				ttftMillis.compareAndSet(-1, (System.nanoTime() - start) / 1_000_000);
+				if (!checker.append(token)) {
+					logger.debug(String.format("Stream aborted, unrecoverable fragment -->\n%s", checker.getCode()));
+					aborted.set(true);
+					result.complete(checker.getCode());
+					streamingCall.abort();
+					return;
+				}
+				partialListener.accept(checker.getCode());
+			}).onCompleteResponse(response -> result
+					.complete(checker.isFenced() ? checker.getCode() : response.aiMessage().text()))
+					.onError(result::completeExceptionally).start());
+
+			String suggestion = getRequestContext().await(result);
+			// An aborted stream ends early, its duration would skew the estimates
+			if (!aborted.get()) {
+				recordCall(session, retrievedBefore, start, ttftMillis.get());
+			}
+			span.completionTokens(TokenCounter.count(suggestion));
+			return suggestion;
+		}
+	}
+
+	/**
+	 * Asks the LLM to fix a suggestion. Only the context window is sent as the
+	 * full code, so the lines of the errors are made relative to it.
+	 */
+	/**
+	 * @return Whether the documentation of the request has already been
+	 *         retrieved, or there is none to retrieve.
+	 */
+	private boolean hasRetrieved() {
+		RetrievalSession retrieval = getRequestContext().getRetrievalSession();
+		return retrieval == null || retrieval.hasRetrieved();
+	}
+
+	/**
+	 * Records the latency of an LLM call in the {@link LatencyTracker}. The
+	 * retrieval made during the call, or waited for, is left out: it is tracked
+	 * and projected on its own.
+	 * 
+	 * @param retrievedBefore Whether the documentation had been retrieved when the
+	 *                        call started.
+	 * @param startNanos      When the call started.
+	 * @param ttftMillis      Time to the first token, or -1 if not streamed.
+	 */
+	private void recordCall(CompletionSession session, boolean retrievedBefore, long startNanos, long ttftMillis) {
+		long totalMillis = (System.nanoTime() - startNanos) / 1_000_000;
+		RetrievalSession retrieval = getRequestContext().getRetrievalSession();
+		long retrievalMillis = (!retrievedBefore && retrieval != null)
+				? Math.min(retrieval.getRetrievalMillis(), totalMillis)
+				: 0;
+		LatencyTracker.getInstance().recordCall(getModelName(), session.promptTokens,
+				(ttftMillis >= 0) ? Math.max(0, ttftMillis - retrievalMillis) : -1, totalMillis - retrievalMillis);
+	}
+
+	private String fixSuggestion(CompletionSession session, int generationAttempt, String suggestion,
+			List<String> errorList, Double temperature) {
+
+		DslProfile dsl = this.getDslProfile();
 
-		String completedCode = code.substring(0, offset) + suggestion + code.substring(offset);
-		String errors = errorList.stream().reduce("", (a, b) -> a + "\n" + b);
+		String completedCode = session.window.mark(suggestion);
+		int firstLine = 1 + (int) session.code.substring(0, session.window.getStart()).chars().filter(c -> c == '\n')
+				.count();
+		int lineCount = 1 + (int) completedCode.chars().filter(c -> c == '\n').count();
+		String errors = errorList.stream().map(error -> SyntaxVerifier.rebaseIssueLine(error, firstLine, lineCount))
+				.reduce("", (a, b) -> a + "\n" + b);
 		String userMessage = String.format("""
 				FULL CODE:
 				%s
@@ -221,17 +667,144 @@ public class ContextAwareCompletionAssistant extends Assistant {
 
 				""", completedCode, suggestion, errors);
 
-		String examples = buildExamplesString();
-		if (examples == null) return null;
-
 		FixErrorsContextAwareCompletionService aiService = buildAssistant(FixErrorsContextAwareCompletionService.class,
-				temperature);
+				temperature, session.isRetrieving());
+
+		int promptTokens = session.promptTokens + TokenCounter.count(suggestion) + TokenCounter.count(errors);
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.LLM_CALL).detail("fix").attempt(generationAttempt)
+				.promptTokens(promptTokens)) {
+			String fixed = call(() -> aiService.chat(userMessage, dsl.getName(), dsl.getDescription(),
+					session.grammar, session.examples));
+			span.completionTokens(TokenCounter.count(fixed));
+			return fixed;
+		}
+	}
 
-		return aiService.chat(userMessage, dsl.getName(), dsl.getDescription(), grammar, examples);
+	private List<String> buildAndVerify(CompletionSession session, int generationAttempt, String suggestion) {
+		List<String> errors;
+		try (Telemetry.Span span = startSpan(Telemetry.Stage.VALIDATION).attempt(generationAttempt)
+				.payloadChars(session.code.length() + suggestion.length())) {
+			errors = withVerifier(
+					verifier -> verifier.validateInsertion(session.code, session.offset, suggestion, true));
+			span.detail(String.format("%d errors", errors.size()));
+		}
+		session.offer(suggestion, errors.size());
+		return errors;
 	}
 
-	private List<String> buildAndVerify(String code, int offset, String suggestion) {
-		String completedCode = code.substring(0, offset) + suggestion + code.substring(offset);
-		return getVerifier().validate(completedCode, true);
+	/**
+	 * Inputs shared by every generation attempt of a suggestion, at the chosen
+	 * degradation level, and the best suggestion verified so far.
+	 */
+	private static final class CompletionSession {
+
+		private final String instruction;
+		private final String code;
+		private final int offset;
+		private final ContextWindowExtractor.Window window;
+		private final String grammar;
+		private final String examples;
+		private final DegradationLevel level;
+		private final int promptTokens;
+
+		private String bestSuggestion = null;
+		private int bestErrorCount = Integer.MAX_VALUE;
+
+		/** The session the attempts of a speculative race offer to, or null. */
+		private final CompletionSession shared;
+		private final AtomicBoolean raceDecided;
+
+		private CompletionSession(String instruction, String code, int offset, ContextWindowExtractor.Window window,
+				String grammar, String examples, DegradationLevel level) {
+			this.instruction = instruction;
+			this.code = code;
+			this.offset = offset;
+			this.window = window;
+			this.grammar = grammar;
+			this.examples = examples;
+			this.level = level;
+			this.promptTokens = TokenCounter.count(grammar) + TokenCounter.count(examples)
+					+ window.getWindowTokens() + TokenCounter.count(instruction);
+			this.shared = null;
+			this.raceDecided = null;
+		}
+
+		private CompletionSession(CompletionSession shared, AtomicBoolean raceDecided) {
+			this.instruction = shared.instruction;
+			this.code = shared.code;
+			this.offset = shared.offset;
+			this.window = shared.window;
+			this.grammar = shared.grammar;
+			this.examples = shared.examples;
+			this.level = shared.level;
+			this.promptTokens = shared.promptTokens;
+			this.shared = shared;
+			this.raceDecided = raceDecided;
+		}
+
+		/**
+		 * @return The session of the attempts of a speculative race: they offer
+		 *         their suggestions to this session until the race is decided.
+		 */
+		private CompletionSession forRace(AtomicBoolean raceDecided) {
+			return new CompletionSession(this, raceDecided);
+		}
+
+		private synchronized void decideRace(AtomicBoolean raceDecided) {
+			raceDecided.set(true);
+		}
+
+		/**
+		 * @throws CancellationException if the attempt lost a speculative race
+		 */
+		private void checkRace() {
+			if (raceDecided != null && raceDecided.get()) {
+				throw new CancellationException("Another generation attempt already won");
+			}
+		}
+
+		private boolean isRetrieving() {
+			return level == DegradationLevel.FULL;
+		}
+
+		/**
+		 * Keeps the suggestion if it has fewer errors than the best one so far.
+		 */
+		private void offer(String suggestion, int errorCount) {
+			if (shared != null) {
+				// Decided under the same lock, so a losing attempt cannot offer late
+				synchronized (shared) {
+					if (!raceDecided.get()) {
+						shared.offer(suggestion, errorCount);
+					}
+				}
+				return;
+			}
+			synchronized (this) {
+				if (errorCount < bestErrorCount) {
+					bestSuggestion = suggestion;
+					bestErrorCount = errorCount;
+				}
+			}
+		}
+
+		private synchronized String getBestSuggestion() {
+			return bestSuggestion;
+		}
+
+		private synchronized int getBestErrorCount() {
+			return bestErrorCount;
+		}
+	}
+
+	private static final class GenerationResult {
+
+		private final String suggestion;
+		private final boolean valid;
+
+		private GenerationResult(String suggestion, boolean valid) {
+			this.suggestion = suggestion;
+			this.valid = valid;
+		}
 	}
 }
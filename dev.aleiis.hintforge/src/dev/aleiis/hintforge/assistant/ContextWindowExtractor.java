@@ -0,0 +1,154 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.eclipse.xtext.util.ITextRegion;
+
+import dev.aleiis.hintforge.utils.TokenCounter;
+
+/**
+ * Picks the part of a document that is sent to the LLM as the context of the
+ * cursor, so that big documents do not produce huge prompts.
+ *
+ * The window starts with the biggest element enclosing the cursor that fits in
+ * the token budget (from the Xtext parse tree) and is then grown with whole
+ * lines before and after it while the budget allows. If not even the innermost
+ * element fits, the window is built from the lines around the cursor.
+ */
+public class ContextWindowExtractor {
+
+	private ContextWindowExtractor() {
+	}
+
+	/**
+	 * Extracts the context window of the cursor.
+	 *
+	 * @param code             The whole document.
+	 * @param offset           Offset of the cursor in the document.
+	 * @param enclosingRegions Supplies the regions of the elements enclosing the
+	 *                         cursor, from the innermost to the outermost one.
+	 *                         Only called if the document exceeds the budget.
+	 * @param tokenBudget      Maximum number of tokens of the window, or 0 to
+	 *                         use the whole document.
+	 *
+	 * @return The window.
+	 */
+	public static Window extract(String code, int offset, Supplier<List<ITextRegion>> enclosingRegions,
+			int tokenBudget) {
+		int documentTokens = TokenCounter.count(code);
+		if (tokenBudget <= 0 || documentTokens <= tokenBudget) {
+			return new Window(code, 0, offset, documentTokens, documentTokens);
+		}
+
+		int start = offset;
+		int end = offset;
+		int usedTokens = 0;
+		for (ITextRegion region : enclosingRegions.get()) {
+			int regionStart = Math.max(0, region.getOffset());
+			int regionEnd = Math.min(code.length(), region.getOffset() + region.getLength());
+			if (regionStart > offset || regionEnd < offset) {
+				continue;
+			}
+			int regionTokens = TokenCounter.count(code.substring(regionStart, regionEnd));
+			if (regionTokens > tokenBudget) {
+				break;
+			}
+			start = regionStart;
+			end = regionEnd;
+			usedTokens = regionTokens;
+		}
+
+		// Grow line by line, alternating sides, while the budget allows it.
+		// Token counts of separate lines are added up, which is a close enough
+		// estimate of the count of the whole window.
+		boolean growBefore = true;
+		boolean growAfter = true;
+		while (growBefore || growAfter) {
+			if (growBefore) {
+				if (start == 0) {
+					growBefore = false;
+				} else {
+					int lineStart = code.lastIndexOf('\n', start - 2) + 1;
+					int lineTokens = TokenCounter.count(code.substring(lineStart, start));
+					if (usedTokens + lineTokens <= tokenBudget) {
+						usedTokens += lineTokens;
+						start = lineStart;
+					} else {
+						growBefore = false;
+					}
+				}
+			}
+			if (growAfter) {
+				if (end == code.length()) {
+					growAfter = false;
+				} else {
+					int newline = code.indexOf('\n', end);
+					int lineEnd = (newline < 0) ? code.length() : newline + 1;
+					int lineTokens = TokenCounter.count(code.substring(end, lineEnd));
+					if (usedTokens + lineTokens <= tokenBudget) {
+						usedTokens += lineTokens;
+						end = lineEnd;
+					} else {
+						growAfter = false;
+					}
+				}
+			}
+		}
+
+		return new Window(code.substring(start, end), start, offset - start, documentTokens, usedTokens);
+	}
+
+	/**
+	 * A window of a document. Offsets inside the window are relative to its text.
+	 */
+	public static final class Window {
+
+		private final String text;
+		private final int start;
+		private final int offset;
+		private final int documentTokens;
+		private final int windowTokens;
+
+		private Window(String text, int start, int offset, int documentTokens, int windowTokens) {
+			this.text = text;
+			this.start = start;
+			this.offset = offset;
+			this.documentTokens = documentTokens;
+			this.windowTokens = windowTokens;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * @return The offset of the window in the document.
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**
+		 * @return The offset of the cursor in the window.
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return The text of the window with the marker inserted at the cursor.
+		 */
+		public String mark(String marker) {
+			return text.substring(0, offset) + marker + text.substring(offset);
+		}
+
+		public int getDocumentTokens() {
+			return documentTokens;
+		}
+
+		public int getWindowTokens() {
+			return windowTokens;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package dev.aleiis.hintforge.assistant;
+
+/**
+ * How much of the prompt is given up to meet the latency budget of a request.
+ * Every level drops what the previous one dropped plus the next part that is
+ * cheapest to lose.
+ */
+public enum DegradationLevel {
+	/** The whole prompt is sent. */
+	FULL,
+	/** The documentation retrieved from the embedding store is not sent. */
+	NO_RETRIEVAL,
+	/** Only the first example script is sent. */
+	FEW_EXAMPLES,
+	/** Only the code closest to the cursor is sent. */
+	NARROW_CONTEXT
+}
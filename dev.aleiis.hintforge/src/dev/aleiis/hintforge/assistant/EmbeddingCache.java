@@ -0,0 +1,136 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * Keeps the embeddings of recent queries, so that the same instruction or
+ * context is not embedded again by every attempt, retry or request.
+ *
+ * Entries are keyed by a hash of the model provider, the model name and the
+ * text with whitespace collapsed, and hold the plain vector. At most {@link #MAX_ENTRIES} entries
+ * are kept, least recently used first out.
+ */
+public class EmbeddingCache {
+
+	public static final int MAX_ENTRIES = 1024;
+
+	private static EmbeddingCache instance;
+
+	private final LinkedHashMap<String, float[]> entries = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private EmbeddingCache() {
+	}
+
+	public static synchronized EmbeddingCache getInstance() {
+		if (instance == null) {
+			instance = new EmbeddingCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Wraps an embedding model so that its embeddings go through this cache.
+	 *
+	 * @param model      The embedding model.
+	 * @param providerId The {@link ChatModelProvider} of the model, part of the
+	 *                   key of every entry.
+	 * @param modelName  The name of the model, part of the key of every entry.
+	 *
+	 * @return The wrapped model.
+	 */
+	public EmbeddingModel wrap(EmbeddingModel model, String providerId, String modelName) {
+		return new EmbeddingModel() {
+			@Override
+			public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+				return embedThroughCache(model, providerId, modelName, segments);
+			}
+		};
+	}
+
+	private Response<List<Embedding>> embedThroughCache(EmbeddingModel model, String providerId, String modelName,
+			List<TextSegment> segments) {
+		List<String> keys = new ArrayList<>(segments.size());
+		float[][] vectors = new float[segments.size()][];
+		List<TextSegment> missing = new ArrayList<>();
+		synchronized (this) {
+			for (int i = 0; i < segments.size(); i++) {
+				String key = key(providerId, modelName, segments.get(i).text());
+				keys.add(key);
+				vectors[i] = entries.get(key);
+				if (vectors[i] == null) {
+					missing.add(segments.get(i));
+				}
+			}
+		}
+		hits.addAndGet(segments.size() - missing.size());
+		misses.addAndGet(missing.size());
+
+		Response<List<Embedding>> response = null;
+		if (!missing.isEmpty()) {
+			response = model.embedAll(missing);
+			List<Embedding> embedded = response.content();
+			synchronized (this) {
+				for (int i = 0, j = 0; i < vectors.length; i++) {
+					if (vectors[i] == null) {
+						vectors[i] = embedded.get(j++).vector().clone();
+						entries.put(keys.get(i), vectors[i]);
+					}
+				}
+			}
+		}
+
+		// Copied, since callers may normalize the embeddings in place
+		List<Embedding> embeddings = new ArrayList<>(vectors.length);
+		for (float[] vector : vectors) {
+			embeddings.add(Embedding.from(vector.clone()));
+		}
+		return (response != null) ? Response.from(embeddings, response.tokenUsage(), response.finishReason())
+				: Response.from(embeddings);
+	}
+
+	private static String key(String providerId, String modelName, String text) {
+		return ResponseCache.key(List.of(String.valueOf(providerId), String.valueOf(modelName),
+				text.strip().replaceAll("\\s+", " ")));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The fraction of embeddings served from the cache, or 0 if nothing
+	 *         has been embedded yet.
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return (total == 0) ? 0 : (double) hits / total;
+	}
+}
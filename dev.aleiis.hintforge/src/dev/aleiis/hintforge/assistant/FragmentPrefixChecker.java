@@ -0,0 +1,215 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Cheap check of a code fragment that is still being generated. It is fed the
+ * fragment token by token and detects when the fragment can no longer become
+ * part of a valid document, so the generation can be aborted early.
+ *
+ * A fragment is considered unrecoverable when it closes a bracket that was
+ * never opened (either in the fragment or in the code before the insertion
+ * point), when it closes a bracket with the wrong type, or when it contains
+ * prompt markers or Markdown fences. String literals and the default Xtext
+ * comments ({@code //} and {@code /* *}{@code /}) are skipped.
+ *
+ * Models sometimes enclose the whole fragment in a Markdown fence despite the
+ * instructions. A fence that opens the fragment is skipped with its language
+ * tag, and the fence that closes it ends the fragment (see {@link #getCode()}).
+ */
+public class FragmentPrefixChecker {
+
+	private static final String OPENING_BRACKETS = "([{";
+	private static final String CLOSING_BRACKETS = ")]}";
+	private static final String FENCE = "```";
+	private static final String[] FORBIDDEN_MARKERS = { "[[CURSOR]]", FENCE };
+
+	private final Deque<Character> openBrackets = new ArrayDeque<>();
+	private final StringBuilder fragment = new StringBuilder();
+	private int codeStart = -1;
+	private int codeEnd = -1;
+	private boolean fenced = false;
+	private int checked = 0;
+	private boolean enabled = true;
+	private boolean viable = true;
+	private char openQuote = 0;
+	private boolean inLineComment = false;
+	private boolean inBlockComment = false;
+	private char previous = 0;
+
+	/**
+	 * @param codeBeforeOffset The code that precedes the insertion point.
+	 */
+	public FragmentPrefixChecker(CharSequence codeBeforeOffset) {
+		for (int i = 0; i < codeBeforeOffset.length(); i++) {
+			if (!scan(codeBeforeOffset.charAt(i))) {
+				// The context itself is not balanced, so nothing can be told about the fragment
+				enabled = false;
+				return;
+			}
+		}
+		// The insertion point is inside a string literal or a comment
+		enabled = openQuote == 0 && !inLineComment && !inBlockComment;
+	}
+
+	/**
+	 * Appends a new piece of the fragment.
+	 *
+	 * @param token The text generated since the last call.
+	 *
+	 * @return {@code false} if the fragment can no longer be part of a valid
+	 *         document.
+	 */
+	public boolean append(String token) {
+		fragment.append(token);
+		if (codeStart < 0) {
+			codeStart = findCodeStart();
+			if (codeStart < 0) {
+				return viable;
+			}
+			checked = codeStart;
+		}
+		if (fenced && codeEnd < 0) {
+			int closingFence = fragment.indexOf(FENCE, Math.max(codeStart, checked - FENCE.length() + 1));
+			if (closingFence >= 0) {
+				codeEnd = closingFence;
+			}
+		}
+		if (!enabled || !viable) {
+			return viable;
+		}
+
+		int end = (codeEnd >= 0) ? codeEnd : fragment.length();
+		if (fenced && codeEnd < 0) {
+			// The closing fence may be incomplete, so its backticks are checked later
+			while (end > checked && fragment.charAt(end - 1) == '`') {
+				end--;
+			}
+		}
+		String code = fragment.substring(Math.max(codeStart, checked - longestMarkerLength() + 1), end);
+		for (String marker : FORBIDDEN_MARKERS) {
+			if (code.contains(marker)) {
+				viable = false;
+				return false;
+			}
+		}
+
+		for (; checked < end; checked++) {
+			if (!scan(fragment.charAt(checked))) {
+				viable = false;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean isViable() {
+		return viable;
+	}
+
+	/**
+	 * @return Whether the fragment opens with a Markdown fence.
+	 */
+	public boolean isFenced() {
+		return fenced;
+	}
+
+	/**
+	 * @return The fragment received so far without the opening fence, its
+	 *         language tag and everything from the closing fence on.
+	 */
+	public String getCode() {
+		if (codeStart < 0) {
+			return "";
+		}
+		return fragment.substring(codeStart, (codeEnd >= 0) ? codeEnd : fragment.length());
+	}
+
+	/**
+	 * Finds where the code of the fragment starts: right after the opening fence
+	 * and its language tag, if it has one, or at the start otherwise.
+	 *
+	 * @return The start of the code, or -1 if it cannot be told yet.
+	 */
+	private int findCodeStart() {
+		int start = 0;
+		while (start < fragment.length() && Character.isWhitespace(fragment.charAt(start))) {
+			start++;
+		}
+		String rest = fragment.substring(start, Math.min(fragment.length(), start + FENCE.length()));
+		if (rest.length() < FENCE.length() && FENCE.startsWith(rest)) {
+			return -1;
+		}
+		if (!rest.equals(FENCE)) {
+			return 0;
+		}
+		int languageTagEnd = fragment.indexOf("\n", start + FENCE.length());
+		if (languageTagEnd < 0) {
+			return -1;
+		}
+		fenced = true;
+		return languageTagEnd + 1;
+	}
+
+	private boolean scan(char c) {
+		char last = previous;
+		previous = c;
+
+		if (inLineComment) {
+			inLineComment = c != '\n';
+			return true;
+		}
+		if (inBlockComment) {
+			if (last == '*' && c == '/') {
+				inBlockComment = false;
+				previous = 0;
+			}
+			return true;
+		}
+		if (openQuote != 0) {
+			if (c == openQuote && last != '\\') {
+				openQuote = 0;
+			} else if (c == '\\' && last == '\\') {
+				previous = 0;
+			}
+			return true;
+		}
+		if (last == '/' && c == '/') {
+			inLineComment = true;
+			return true;
+		}
+		if (last == '/' && c == '*') {
+			inBlockComment = true;
+			previous = 0;
+			return true;
+		}
+		if (c == '"' || c == '\'') {
+			openQuote = c;
+			return true;
+		}
+
+		int opening = OPENING_BRACKETS.indexOf(c);
+		if (opening >= 0) {
+			openBrackets.push(c);
+			return true;
+		}
+
+		int closing = CLOSING_BRACKETS.indexOf(c);
+		if (closing >= 0) {
+			if (openBrackets.isEmpty() || openBrackets.peek() != OPENING_BRACKETS.charAt(closing)) {
+				return false;
+			}
+			openBrackets.pop();
+		}
+		return true;
+	}
+
+	private static int longestMarkerLength() {
+		int length = 0;
+		for (String marker : FORBIDDEN_MARKERS) {
+			length = Math.max(length, marker.length());
+		}
+		return length;
+	}
+}
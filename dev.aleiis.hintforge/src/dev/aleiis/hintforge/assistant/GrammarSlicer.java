@@ -0,0 +1,270 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import dev.aleiis.hintforge.utils.TokenCounter;
+
+/**
+ * Splits an Xtext grammar into its rules and builds the rule dependency graph,
+ * so that prompts can carry only the part of the grammar that is relevant at
+ * the cursor.
+ *
+ * The grammar is analysed textually: the header ({@code grammar},
+ * {@code import}, {@code generate} declarations) is kept apart and every rule
+ * is the text up to its terminating semicolon. A rule depends on every other
+ * rule whose name appears in its body.
+ */
+public class GrammarSlicer {
+
+	private static final Pattern HEADER_LINE_PATTERN = Pattern
+			.compile("^\\s*(grammar|import|generate|hidden|with|//|/\\*|\\*)");
+	private static final Pattern RULE_NAME_PATTERN = Pattern
+			.compile("^(?:@\\w+\\s+)*(?:terminal\\s+(?:fragment\\s+)?|enum\\s+|fragment\\s+)?\\^?(\\w+)");
+	private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("\\^?([A-Za-z_]\\w*)");
+
+	private static final int OMITTED_NOTE_TOKENS = 16;
+
+	private final String grammar;
+	private final String header;
+	private final Map<String, Rule> rules = new LinkedHashMap<>();
+	private final int grammarTokens;
+
+	public GrammarSlicer(String grammar) {
+		this.grammar = grammar;
+		this.grammarTokens = TokenCounter.count(grammar);
+
+		List<String> chunks = splitRules(grammar);
+		String headerText = "";
+		for (int i = 0; i < chunks.size(); i++) {
+			String chunk = chunks.get(i);
+			if (i == 0) {
+				int ruleStart = findFirstRuleStart(chunk);
+				headerText = chunk.substring(0, ruleStart).strip();
+				chunk = chunk.substring(ruleStart);
+			}
+			String text = chunk.strip();
+			Matcher matcher = RULE_NAME_PATTERN.matcher(stripComments(text).strip());
+			if (!text.isEmpty() && matcher.find()) {
+				rules.putIfAbsent(matcher.group(1), new Rule(matcher.group(1), text));
+			}
+		}
+		this.header = headerText;
+
+		for (Rule rule : rules.values()) {
+			String body = stripStringsAndComments(rule.text);
+			int colon = body.indexOf(':');
+			Matcher matcher = IDENTIFIER_PATTERN.matcher(colon >= 0 ? body.substring(colon + 1) : body);
+			while (matcher.find()) {
+				String name = matcher.group(1);
+				if (!name.equals(rule.name) && rules.containsKey(name)) {
+					rule.dependencies.add(name);
+				}
+			}
+		}
+	}
+
+	public String getGrammar() {
+		return grammar;
+	}
+
+	public Set<String> getRuleNames() {
+		return rules.keySet();
+	}
+
+	/**
+	 * Builds a slice of the grammar with the rules reachable from the given rules
+	 * that fit in the token budget. Closer rules are preferred. If no start rule
+	 * is known, the slice starts from the entry rule of the grammar. If the whole
+	 * grammar fits in the budget, it is returned unchanged.
+	 *
+	 * @param startRules  Names of the rules expected at the cursor.
+	 * @param tokenBudget Maximum number of tokens of the slice.
+	 *
+	 * @return The slice.
+	 */
+	public Slice slice(Collection<String> startRules, int tokenBudget) {
+		if (grammarTokens <= tokenBudget || rules.isEmpty()) {
+			return new Slice(grammar, grammarTokens, grammarTokens);
+		}
+
+		Deque<String> pending = new ArrayDeque<>();
+		for (String name : startRules) {
+			if (rules.containsKey(name)) {
+				pending.add(name);
+			}
+		}
+		if (pending.isEmpty()) {
+			pending.add(rules.keySet().iterator().next());
+		}
+
+		// Room is kept for the note about the omitted rules
+		int usedTokens = TokenCounter.count(header) + OMITTED_NOTE_TOKENS;
+		Set<String> visited = new LinkedHashSet<>();
+		Set<String> selected = new LinkedHashSet<>();
+		while (!pending.isEmpty()) {
+			String name = pending.poll();
+			if (!visited.add(name)) {
+				continue;
+			}
+			Rule rule = rules.get(name);
+			if (usedTokens + rule.getTokens() > tokenBudget) {
+				continue;
+			}
+			usedTokens += rule.getTokens();
+			selected.add(name);
+			pending.addAll(rule.dependencies);
+		}
+
+		StringBuilder text = new StringBuilder(header);
+		for (Rule rule : rules.values()) {
+			if (selected.contains(rule.name)) {
+				text.append("\n\n").append(rule.text);
+			}
+		}
+		int omitted = rules.size() - selected.size();
+		if (omitted > 0) {
+			text.append(String.format("\n\n// %d rules not relevant at the cursor were omitted", omitted));
+		}
+
+		String sliced = text.toString().strip();
+		return new Slice(sliced, grammarTokens, TokenCounter.count(sliced));
+	}
+
+	/**
+	 * Splits the grammar at every semicolon that is not inside a string, a
+	 * comment or an action.
+	 */
+	private static List<String> splitRules(String grammar) {
+		List<String> chunks = new ArrayList<>();
+		int start = 0;
+		int braces = 0;
+		for (int i = 0; i < grammar.length(); i++) {
+			char c = grammar.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = skipString(grammar, i);
+			} else if (grammar.startsWith("//", i)) {
+				int end = grammar.indexOf('\n', i);
+				i = (end < 0) ? grammar.length() : end;
+			} else if (grammar.startsWith("/*", i)) {
+				int end = grammar.indexOf("*/", i + 2);
+				i = (end < 0) ? grammar.length() : end + 1;
+			} else if (c == '{') {
+				braces++;
+			} else if (c == '}') {
+				braces = Math.max(0, braces - 1);
+			} else if (c == ';' && braces == 0) {
+				chunks.add(grammar.substring(start, i + 1));
+				start = i + 1;
+			}
+		}
+		if (start < grammar.length() && !grammar.substring(start).isBlank()) {
+			chunks.add(grammar.substring(start));
+		}
+		return chunks;
+	}
+
+	private static int skipString(String text, int start) {
+		char quote = text.charAt(start);
+		for (int i = start + 1; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == quote) {
+				return i;
+			}
+		}
+		return text.length();
+	}
+
+	private static int findFirstRuleStart(String chunk) {
+		int position = 0;
+		for (String line : chunk.split("\n", -1)) {
+			if (!line.isBlank() && !HEADER_LINE_PATTERN.matcher(line).find() && !line.strip().startsWith("(")) {
+				return position;
+			}
+			position += line.length() + 1;
+		}
+		return 0;
+	}
+
+	private static String stripComments(String text) {
+		return text.replaceAll("(?s)/\\*.*?\\*/", " ").replaceAll("//[^\n]*", " ");
+	}
+
+	private static String stripStringsAndComments(String text) {
+		StringBuilder result = new StringBuilder();
+		String withoutComments = stripComments(text);
+		for (int i = 0; i < withoutComments.length(); i++) {
+			char c = withoutComments.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = skipString(withoutComments, i);
+				result.append(' ');
+			} else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+	private static final class Rule {
+
+		private final String name;
+		private final String text;
+		private final Set<String> dependencies = new LinkedHashSet<>();
+		private int tokens = -1;
+
+		private Rule(String name, String text) {
+			this.name = name;
+			this.text = text;
+		}
+
+		private int getTokens() {
+			if (tokens < 0) {
+				tokens = TokenCounter.count(text) + 2;
+			}
+			return tokens;
+		}
+	}
+
+	/**
+	 * A slice of a grammar and its size compared to the whole grammar.
+	 */
+	public static final class Slice {
+
+		private final String text;
+		private final int grammarTokens;
+		private final int sliceTokens;
+
+		private Slice(String text, int grammarTokens, int sliceTokens) {
+			this.text = text;
+			this.grammarTokens = grammarTokens;
+			this.sliceTokens = sliceTokens;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public int getGrammarTokens() {
+			return grammarTokens;
+		}
+
+		public int getSliceTokens() {
+			return sliceTokens;
+		}
+
+		public int getSavedTokens() {
+			return grammarTokens - sliceTokens;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events emitted for the {@link Telemetry} spans, one
+ * event type per stage, so that a JFR recording of the IDE shows the work of
+ * HintForge next to GC pauses and thread stalls.
+ *
+ * Events are only created when their type is enabled in a running recording;
+ * otherwise a span costs a single enabled check.
+ */
+public final class HintForgeEvents {
+
+	private static final Map<Telemetry.Stage, EventType> eventTypes = new EnumMap<>(Telemetry.Stage.class);
+
+	static {
+		eventTypes.put(Telemetry.Stage.SESSION, EventType.getEventType(CompletionSessionEvent.class));
+		eventTypes.put(Telemetry.Stage.PROMPT_ASSEMBLY, EventType.getEventType(PromptAssemblyEvent.class));
+		eventTypes.put(Telemetry.Stage.RETRIEVAL, EventType.getEventType(RetrievalEvent.class));
+		eventTypes.put(Telemetry.Stage.LLM_CALL, EventType.getEventType(LlmCallEvent.class));
+		eventTypes.put(Telemetry.Stage.TRIM, EventType.getEventType(TrimEvent.class));
+		eventTypes.put(Telemetry.Stage.VALIDATION, EventType.getEventType(VerifierParseEvent.class));
+		eventTypes.put(Telemetry.Stage.INGESTION, EventType.getEventType(IngestionEvent.class));
+	}
+
+	private HintForgeEvents() {
+	}
+
+	/**
+	 * @return A new, not yet started event for the given stage, or null if no
+	 *         running recording has its type enabled.
+	 */
+	static SpanEvent create(Telemetry.Stage stage) {
+		EventType eventType = eventTypes.get(stage);
+		if (eventType == null || !eventType.isEnabled()) {
+			return null;
+		}
+		switch (stage) {
+		case SESSION:
+			return new CompletionSessionEvent();
+		case PROMPT_ASSEMBLY:
+			return new PromptAssemblyEvent();
+		case RETRIEVAL:
+			return new RetrievalEvent();
+		case LLM_CALL:
+			return new LlmCallEvent();
+		case TRIM:
+			return new TrimEvent();
+		case VALIDATION:
+			return new VerifierParseEvent();
+		case INGESTION:
+			return new IngestionEvent();
+		default:
+			throw new IllegalArgumentException("Unknown stage: " + stage);
+		}
+	}
+
+	@Category("HintForge")
+	public abstract static class SpanEvent extends Event {
+
+		@Label("Profile")
+		String profile;
+
+		@Label("Request Id")
+		long requestId;
+
+		@Label("Detail")
+		String detail;
+
+		@Label("Attempt")
+		int attempt;
+
+		@Label("Prompt Tokens")
+		int promptTokens;
+
+		@Label("Completion Tokens")
+		int completionTokens;
+
+		@Label("Payload Characters")
+		int payloadChars;
+	}
+
+	@Name("dev.aleiis.hintforge.CompletionSession")
+	@Label("Completion Session")
+	@Description("A whole code completion request")
+	public static final class CompletionSessionEvent extends SpanEvent {
+	}
+
+	@Name("dev.aleiis.hintforge.PromptAssembly")
+	@Label("Prompt Assembly")
+	@Description("Loading the grammar or the examples of a prompt")
+	public static final class PromptAssemblyEvent extends SpanEvent {
+	}
+
+	@Name("dev.aleiis.hintforge.Retrieval")
+	@Label("Retrieval Query")
+	@Description("Embedding a query and searching the documentation of the DSL")
+	public static final class RetrievalEvent extends SpanEvent {
+	}
+
+	@Name("dev.aleiis.hintforge.LlmCall")
+	@Label("LLM Call")
+	@Description("A generation or fix attempt sent to the LLM")
+	public static final class LlmCallEvent extends SpanEvent {
+	}
+
+	@Name("dev.aleiis.hintforge.Trim")
+	@Label("Overlap Trim")
+	@Description("Trimming the overlap of a suggestion with the code")
+	public static final class TrimEvent extends SpanEvent {
+	}
+
+	@Name("dev.aleiis.hintforge.VerifierParse")
+	@Label("Verifier Parse")
+	@Description("A syntax validation of a suggestion")
+	public static final class VerifierParseEvent extends SpanEvent {
+	}
+
+	@Name("dev.aleiis.hintforge.IngestionBatch")
+	@Label("Embedding Ingestion Batch")
+	@Description("Embedding and storing the segments of a documentation file")
+	public static final class IngestionEvent extends SpanEvent {
+	}
+}
@@ -1,14 +1,15 @@
 package dev.aleiis.hintforge.assistant;
 
-import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import dev.aleiis.hintforge.model.DslProfile;
 import dev.aleiis.hintforge.model.IdentifierSuggestionConfig;
+import dev.aleiis.hintforge.utils.TokenCounter;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
@@ -65,36 +66,73 @@ public class IdentifierSuggestionAssistant extends Assistant {
 		DslProfile dsl = getDslProfile();
 		IdentifierSuggestionConfig config = dsl.getIdentifierSuggestionConfig();
 
-		String grammar;
-		try {
-			grammar = dsl.getXtextFile().readContent(getHomeFolder());
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
+		String grammar = buildGrammarString(code, offset);
+		if (grammar == null) return null;
+
+		ContextWindowExtractor.Window window = buildContextWindow(code, offset);
+		String markedCode = window.mark("[[CURSOR]]");
+
+		String examples = buildExamplesString();
+		if (examples == null) return null;
+
+		ResponseCache responseCache = ResponseCache.getInstance();
+		String cacheKey = buildResponseCacheKey(config.getFewShotPrompt(), grammar, examples, markedCode);
+		String cached = responseCache.get(cacheKey);
+		if (cached != null) {
+			return new ArrayList<>(List.of(cached.split("\n")));
+		}
+
+		// Every attempt retrieves the documentation for the code around the cursor
+		// only, built if the documentation is retrieved at all
+		Supplier<String> localContext = lazyLocalContext(code, offset);
+		Suggestions suggestions = coalesce(cacheKey, () -> withRetrievalSession(null, localContext,
+				() -> suggestUncached(code, offset, window, grammar, examples)));
+		// Copied, since identical requests running at the same time share the list
+		List<String> identifiers = new ArrayList<>(suggestions.identifiers);
+		// Only identifiers that passed verification are worth repeating
+		if (suggestions.verified && !identifiers.isEmpty()) {
+			responseCache.put(cacheKey, String.join("\n", identifiers));
 		}
+		return identifiers;
+	}
 
-		String markedCode = code.substring(0, offset) + "[[CURSOR]]" + code.substring(offset);
+	private Suggestions suggestUncached(String code, int offset, ContextWindowExtractor.Window window,
+			String grammar, String examples) {
+		DslProfile dsl = getDslProfile();
+		IdentifierSuggestionConfig config = dsl.getIdentifierSuggestionConfig();
+		String markedCode = window.mark("[[CURSOR]]");
 
 		int maxGenerationAttempts = config.getMaxGenerationAttempts();
+		int promptTokens = TokenCounter.count(grammar) + TokenCounter.count(examples) + window.getWindowTokens();
 
 		IdentifierSuggestionService assistant = buildAssistant(IdentifierSuggestionService.class, 0.5);
 		List<String> identifiers = new ArrayList<>();
+		boolean verified = false;
 
 		for (int generationAttempts = 1; identifiers.isEmpty()
 				&& generationAttempts <= maxGenerationAttempts; generationAttempts++) {
-			
-			String response = assistant.chat(config.getFewShotPrompt(), dsl.getName(), dsl.getDescription(), grammar,
-					buildExamplesString(), markedCode);
+			getRequestContext().checkActive();
+			getRequestContext().progress(String.format("Suggesting identifiers (attempt %d)", generationAttempts));
+
+			String response;
+			try (Telemetry.Span span = startSpan(Telemetry.Stage.LLM_CALL).detail("identifiers")
+					.attempt(generationAttempts - 1).promptTokens(promptTokens)) {
+				response = call(() -> assistant.chat(config.getFewShotPrompt(), dsl.getName(), dsl.getDescription(),
+						grammar, examples, markedCode));
+				span.completionTokens(TokenCounter.count(response));
+			}
 			identifiers = List.of(response.split("\\R"));
-			identifiers = identifiers.stream().map(id -> trimContextOverlap(code, offset, id)).toList();
+			identifiers = identifiers.stream()
+					.map(id -> trimContextOverlap(window.getText(), window.getOffset(), id)).toList();
 			identifiers = removeDuplicates(identifiers);
 			
-			if (generationAttempts < maxGenerationAttempts) {
-				identifiers = verifyIdentifiers(code, offset, identifiers);	
+			verified = generationAttempts < maxGenerationAttempts;
+			if (verified) {
+				identifiers = verifyIdentifiers(code, offset, identifiers);
 			}
 		}
 
-		return identifiers;
+		return new Suggestions(identifiers, verified);
 	}
 
 	private List<String> removeDuplicates(List<String> identifiers) {
@@ -104,14 +142,33 @@ public class IdentifierSuggestionAssistant extends Assistant {
 	}
 
 	private List<String> verifyIdentifiers(String code, int offset, List<String> identifiers) {
-		SyntaxVerifier verifier = getVerifier();
+		List<Boolean> valid = withVerifiers(identifiers, (verifier, identifier) -> {
+			try (Telemetry.Span span = startSpan(Telemetry.Stage.VALIDATION).detail(identifier)
+					.payloadChars(code.length() + identifier.length())) {
+				return verifier.validateInsertion(code, offset, identifier, true).isEmpty();
+			}
+		});
 		List<String> result = new ArrayList<>();
-		for (String identifier : identifiers) {
-			String completedCode = code.substring(0, offset) + identifier + code.substring(offset);
-			if (verifier.validate(completedCode, true).isEmpty()) {
-				result.add(identifier);
+		for (int i = 0; i < identifiers.size(); i++) {
+			if (valid.get(i)) {
+				result.add(identifiers.get(i));
 			}
 		}
 		return result;
 	}
+
+	/**
+	 * The identifiers of the last attempt, and whether they passed verification:
+	 * those of the final attempt are returned unverified.
+	 */
+	private static final class Suggestions {
+
+		private final List<String> identifiers;
+		private final boolean verified;
+
+		private Suggestions(List<String> identifiers, boolean verified) {
+			this.identifiers = identifiers;
+			this.verified = verified;
+		}
+	}
 }
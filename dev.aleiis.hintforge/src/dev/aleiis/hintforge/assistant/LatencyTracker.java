@@ -0,0 +1,143 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps exponentially weighted moving averages of the latency of recent LLM
+ * calls, so that assistants can project how long a prompt will take before
+ * sending it.
+ *
+ * For every model it tracks the total latency of a call, the size of its
+ * prompt and, for streamed calls, the time to the first token per prompt
+ * token. The time and size of the documentation retrieved from the embedding
+ * stores are tracked as well. It also counts the {@link DegradationLevel} used
+ * by each request.
+ */
+public class LatencyTracker {
+
+	private static final double SMOOTHING = 0.3;
+
+	private static LatencyTracker instance;
+
+	private final Map<String, ModelStats> models = new ConcurrentHashMap<>();
+	private final Average retrievalMillis = new Average();
+	private final Average retrievedTokens = new Average();
+	private final Map<DegradationLevel, AtomicLong> levelCounts = new EnumMap<>(DegradationLevel.class);
+
+	private LatencyTracker() {
+		for (DegradationLevel level : DegradationLevel.values()) {
+			levelCounts.put(level, new AtomicLong());
+		}
+	}
+
+	public static synchronized LatencyTracker getInstance() {
+		if (instance == null) {
+			instance = new LatencyTracker();
+		}
+		return instance;
+	}
+
+	/**
+	 * Records a finished LLM call.
+	 *
+	 * @param modelName    The model that served the call.
+	 * @param promptTokens Tokens of the prompt, not counting retrieved content.
+	 * @param ttftMillis   Time to the first token, or a negative value if the
+	 *                     call was not streamed.
+	 * @param totalMillis  Total time of the call, without the retrieval of the
+	 *                     documentation, which is recorded on its own.
+	 */
+	public void recordCall(String modelName, int promptTokens, long ttftMillis, long totalMillis) {
+		ModelStats stats = models.computeIfAbsent(modelName, name -> new ModelStats());
+		stats.totalMillis.add(totalMillis);
+		stats.promptTokens.add(promptTokens);
+		if (ttftMillis >= 0 && promptTokens > 0) {
+			stats.ttftMillisPerToken.add((double) ttftMillis / promptTokens);
+		}
+	}
+
+	/**
+	 * Records a retrieval from an embedding store.
+	 *
+	 * @param millis Time spent retrieving.
+	 * @param tokens Tokens of the retrieved content.
+	 */
+	public void recordRetrieval(long millis, int tokens) {
+		retrievalMillis.add(millis);
+		retrievedTokens.add(tokens);
+	}
+
+	/**
+	 * Projects the latency of a call with the given prompt size from the recent
+	 * calls to the model. Only the time to the first token is assumed to grow with
+	 * the prompt; if no streamed call has been seen yet, the whole latency is
+	 * scaled.
+	 *
+	 * @param modelName     The model that will serve the call.
+	 * @param promptTokens  Tokens of the prompt, not counting retrieved content.
+	 * @param withRetrieval Whether documentation will be retrieved for the call.
+	 *
+	 * @return The projected latency in milliseconds, or a negative value if there
+	 *         is no data yet.
+	 */
+	public long estimateMillis(String modelName, int promptTokens, boolean withRetrieval) {
+		ModelStats stats = models.get(modelName);
+		if (stats == null || !stats.totalMillis.hasValue()) {
+			return -1;
+		}
+
+		double tokens = promptTokens;
+		double estimate;
+		if (withRetrieval && retrievalMillis.hasValue()) {
+			tokens += retrievedTokens.get();
+			estimate = retrievalMillis.get();
+		} else {
+			estimate = 0;
+		}
+
+		double averageTokens = Math.max(1, stats.promptTokens.get());
+		if (stats.ttftMillisPerToken.hasValue()) {
+			estimate += stats.totalMillis.get() + stats.ttftMillisPerToken.get() * (tokens - averageTokens);
+		} else {
+			estimate += stats.totalMillis.get() * tokens / averageTokens;
+		}
+		return Math.max(0, Math.round(estimate));
+	}
+
+	public void recordLevel(DegradationLevel level) {
+		levelCounts.get(level).incrementAndGet();
+	}
+
+	public long getLevelCount(DegradationLevel level) {
+		return levelCounts.get(level).get();
+	}
+
+	private static final class ModelStats {
+
+		private final Average totalMillis = new Average();
+		private final Average promptTokens = new Average();
+		private final Average ttftMillisPerToken = new Average();
+	}
+
+	private static final class Average {
+
+		private double value = 0;
+		private boolean hasValue = false;
+
+		private synchronized void add(double sample) {
+			value = hasValue ? SMOOTHING * sample + (1 - SMOOTHING) * value : sample;
+			hasValue = true;
+		}
+
+		private synchronized double get() {
+			return value;
+		}
+
+		private synchronized boolean hasValue() {
+			return hasValue;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Selects the {@link ChatModelProvider} of the assistants from system
+ * properties, so that runs can be recorded and replayed without changing the
+ * preferences:
+ *
+ * <pre>
+ * -Dhintforge.modelProvider=openai|record|replay
+ * -Dhintforge.replayLatencyScale=1.0
+ * </pre>
+ *
+ * Recordings are kept in the {@code recordings} folder of the home folder.
+ * Switching to another provider drops the cached responses and embeddings of
+ * the previous one.
+ */
+public final class ModelProviders {
+
+	public static final String PROVIDER_PROPERTY = "hintforge.modelProvider";
+	public static final String LATENCY_SCALE_PROPERTY = "hintforge.replayLatencyScale";
+	public static final String RECORDINGS_FOLDER = "recordings";
+
+	private static final Map<String, ChatModelProvider> providers = new ConcurrentHashMap<>();
+
+	private static String lastProviderId;
+
+	private ModelProviders() {
+	}
+
+	/**
+	 * @return The provider selected by the system properties for the given home
+	 *         folder. The same instance is returned on every call, so the models it
+	 *         builds stay cached.
+	 */
+	public static ChatModelProvider getDefault(Path homeFolder) {
+		String mode = System.getProperty(PROVIDER_PROPERTY, "openai");
+		Path folder = homeFolder.resolve(RECORDINGS_FOLDER);
+		ChatModelProvider provider;
+		switch (mode) {
+		case "record":
+			provider = providers.computeIfAbsent("record:" + folder,
+					k -> new RecordingModelProvider(OpenAiModelProvider.getInstance(), folder));
+			break;
+		case "replay":
+			double latencyScale = getLatencyScale();
+			provider = providers.computeIfAbsent("replay:" + latencyScale + ":" + folder,
+					k -> new ReplayingModelProvider(folder, latencyScale));
+			break;
+		default:
+			provider = OpenAiModelProvider.getInstance();
+		}
+		onProviderSelected(provider);
+		return provider;
+	}
+
+	/**
+	 * Clears the caches when the selected provider changes, as is done when the
+	 * API key or the model change.
+	 */
+	private static synchronized void onProviderSelected(ChatModelProvider provider) {
+		String providerId = provider.getId();
+		if (lastProviderId != null && !lastProviderId.equals(providerId)) {
+			AssistantServiceCache.getInstance().invalidate();
+			ResponseCache.getInstance().clear();
+			EmbeddingCache.getInstance().clear();
+			SemanticCache.getInstance().clear();
+		}
+		lastProviderId = providerId;
+	}
+
+	private static double getLatencyScale() {
+		try {
+			return Double.parseDouble(System.getProperty(LATENCY_SCALE_PROPERTY, "1.0"));
+		} catch (NumberFormatException e) {
+			return 1.0;
+		}
+	}
+}
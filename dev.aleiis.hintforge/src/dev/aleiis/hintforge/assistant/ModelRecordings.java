@@ -0,0 +1,121 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.request.ChatRequest;
+
+/**
+ * Folder of recorded model calls shared by {@link RecordingModelProvider} and
+ * {@link ReplayingModelProvider}.
+ *
+ * Every call is stored as a JSON file named after the SHA-256 of the request:
+ * the kind of call, the model, the temperature and the messages (or the texts
+ * to embed). Replaying the same request therefore finds the same file.
+ *
+ * Identical requests (e.g. speculative attempts sharing the prompt and the
+ * temperature) are numbered in the order they are made, so that every one of
+ * them keeps its own file and is replayed in the same order.
+ */
+class ModelRecordings {
+
+	private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+	private final Path folder;
+	private final Map<String, AtomicInteger> occurrences = new ConcurrentHashMap<>();
+
+	ModelRecordings(Path folder) {
+		this.folder = folder;
+	}
+
+	Path getFolder() {
+		return folder;
+	}
+
+	static String chatRequestText(ChatRequest request) {
+		return ChatMessageSerializer.messagesToJson(request.messages());
+	}
+
+	static String embeddingRequestText(List<TextSegment> segments) {
+		return segments.stream().map(TextSegment::text).collect(Collectors.joining("\u0000"));
+	}
+
+	static String key(String kind, String modelName, Double temperature, String requestText) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			String text = kind + "\n" + modelName + "\n" + temperature + "\n" + requestText;
+			return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * @return The key of the next occurrence of the request: the first one is
+	 *         keyed by the request alone, the following ones are suffixed with
+	 *         their occurrence number.
+	 */
+	String nextKey(String kind, String modelName, Double temperature, String requestText) {
+		String key = key(kind, modelName, temperature, requestText);
+		int occurrence = occurrences.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+		return (occurrence == 0) ? key : key + "-" + occurrence;
+	}
+
+	void write(String key, Recording recording) {
+		try {
+			Files.createDirectories(folder);
+			Files.writeString(folder.resolve(key + ".json"), gson.toJson(recording));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return The recording of the request, or null if there is none.
+	 */
+	Recording read(String key) {
+		Path file = folder.resolve(key + ".json");
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try {
+			return gson.fromJson(Files.readString(file), Recording.class);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * A recorded call. Chat calls fill the text and token fields, embedding calls
+	 * fill the vectors.
+	 */
+	static final class Recording {
+
+		String kind;
+		String modelName;
+		Double temperature;
+		String request;
+		String response;
+		Integer inputTokens;
+		Integer outputTokens;
+		List<float[]> embeddings;
+		long ttftMillis = -1;
+		long totalMillis;
+	}
+}
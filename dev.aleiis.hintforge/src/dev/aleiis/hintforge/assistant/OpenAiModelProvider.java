@@ -0,0 +1,47 @@
+package dev.aleiis.hintforge.assistant;
+
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+
+/**
+ * Provides the OpenAI models. This is the default provider.
+ */
+public class OpenAiModelProvider implements ChatModelProvider {
+
+	private static OpenAiModelProvider instance;
+
+	private OpenAiModelProvider() {
+	}
+
+	public static synchronized OpenAiModelProvider getInstance() {
+		if (instance == null) {
+			instance = new OpenAiModelProvider();
+		}
+		return instance;
+	}
+
+	@Override
+	public String getId() {
+		return "openai";
+	}
+
+	@Override
+	public ChatLanguageModel chatModel(String apiKey, String modelName, Double temperature) {
+		return OpenAiChatModel.builder().apiKey(apiKey).modelName(modelName).temperature(temperature).build();
+	}
+
+	@Override
+	public StreamingChatLanguageModel streamingChatModel(String apiKey, String modelName, Double temperature) {
+		return OpenAiStreamingChatModel.builder().apiKey(apiKey).modelName(modelName).temperature(temperature)
+				.httpClientBuilder(StreamingCall.httpClientBuilder()).build();
+	}
+
+	@Override
+	public EmbeddingModel embeddingModel(String apiKey, String modelName) {
+		return OpenAiEmbeddingModel.builder().apiKey(apiKey).modelName(modelName).build();
+	}
+}
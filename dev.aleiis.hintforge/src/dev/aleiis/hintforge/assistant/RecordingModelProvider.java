@@ -0,0 +1,138 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.aleiis.hintforge.assistant.ModelRecordings.Recording;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * Wraps another provider and records every call its models serve, with its
+ * latency, into a folder that a {@link ReplayingModelProvider} can serve back.
+ */
+public class RecordingModelProvider implements ChatModelProvider {
+
+	private final ChatModelProvider delegate;
+	private final ModelRecordings recordings;
+
+	public RecordingModelProvider(ChatModelProvider delegate, Path folder) {
+		this.delegate = delegate;
+		this.recordings = new ModelRecordings(folder);
+	}
+
+	@Override
+	public String getId() {
+		return "record:" + delegate.getId();
+	}
+
+	@Override
+	public ChatLanguageModel chatModel(String apiKey, String modelName, Double temperature) {
+		ChatLanguageModel model = delegate.chatModel(apiKey, modelName, temperature);
+		return new ChatLanguageModel() {
+			@Override
+			public ChatResponse doChat(ChatRequest request) {
+				String requestText = ModelRecordings.chatRequestText(request);
+				String key = recordings.nextKey("chat", modelName, temperature, requestText);
+				long start = System.nanoTime();
+				ChatResponse response = model.chat(request);
+				record(key, "chat", modelName, temperature, request, response, -1, millisSince(start));
+				return response;
+			}
+		};
+	}
+
+	@Override
+	public StreamingChatLanguageModel streamingChatModel(String apiKey, String modelName, Double temperature) {
+		StreamingChatLanguageModel model = delegate.streamingChatModel(apiKey, modelName, temperature);
+		return new StreamingChatLanguageModel() {
+			@Override
+			public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+				// Numbered when the call starts, the order the replay looks them up in
+				String requestText = ModelRecordings.chatRequestText(request);
+				String key = recordings.nextKey("chat", modelName, temperature, requestText);
+				long start = System.nanoTime();
+				long[] ttftMillis = { -1 };
+				model.chat(request, new StreamingChatResponseHandler() {
+					@Override
+					public void onPartialResponse(String partialResponse) {
+						if (ttftMillis[0] < 0) {
+							ttftMillis[0] = millisSince(start);
+						}
+						handler.onPartialResponse(partialResponse);
+					}
+
+					@Override
+					public void onCompleteResponse(ChatResponse response) {
+						record(key, "chat", modelName, temperature, request, response, ttftMillis[0],
+								millisSince(start));
+						handler.onCompleteResponse(response);
+					}
+
+					@Override
+					public void onError(Throwable error) {
+						handler.onError(error);
+					}
+				});
+			}
+		};
+	}
+
+	@Override
+	public EmbeddingModel embeddingModel(String apiKey, String modelName) {
+		EmbeddingModel model = delegate.embeddingModel(apiKey, modelName);
+		return new EmbeddingModel() {
+			@Override
+			public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+				String requestText = ModelRecordings.embeddingRequestText(segments);
+				String key = recordings.nextKey("embedding", modelName, null, requestText);
+				long start = System.nanoTime();
+				Response<List<Embedding>> response = model.embedAll(segments);
+
+				Recording recording = new Recording();
+				recording.kind = "embedding";
+				recording.modelName = modelName;
+				recording.embeddings = new ArrayList<>();
+				for (Embedding embedding : response.content()) {
+					recording.embeddings.add(embedding.vector());
+				}
+				TokenUsage tokenUsage = response.tokenUsage();
+				recording.inputTokens = (tokenUsage != null) ? tokenUsage.inputTokenCount() : null;
+				recording.totalMillis = millisSince(start);
+				recordings.write(key, recording);
+				return response;
+			}
+		};
+	}
+
+	private void record(String key, String kind, String modelName, Double temperature, ChatRequest request,
+			ChatResponse response, long ttftMillis, long totalMillis) {
+		Recording recording = new Recording();
+		recording.kind = kind;
+		recording.modelName = modelName;
+		recording.temperature = temperature;
+		recording.request = ModelRecordings.chatRequestText(request);
+		recording.response = response.aiMessage().text();
+		TokenUsage tokenUsage = response.tokenUsage();
+		if (tokenUsage != null) {
+			recording.inputTokens = tokenUsage.inputTokenCount();
+			recording.outputTokens = tokenUsage.outputTokenCount();
+		}
+		recording.ttftMillis = ttftMillis;
+		recording.totalMillis = totalMillis;
+		recordings.write(key, recording);
+	}
+
+	private static long millisSince(long startNanos) {
+		return (System.nanoTime() - startNanos) / 1_000_000;
+	}
+}
@@ -0,0 +1,166 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.aleiis.hintforge.assistant.ModelRecordings.Recording;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * Serves the calls recorded by a {@link RecordingModelProvider} without
+ * contacting any model, so that whole assistant runs can be reproduced offline.
+ *
+ * The recorded latencies are simulated, multiplied by the latency scale: 1.0
+ * reproduces them, 0.0 answers immediately. A request that was never recorded
+ * fails with an {@link IllegalStateException}.
+ */
+public class ReplayingModelProvider implements ChatModelProvider {
+
+	private final ModelRecordings recordings;
+	private final double latencyScale;
+
+	public ReplayingModelProvider(Path folder, double latencyScale) {
+		this.recordings = new ModelRecordings(folder);
+		this.latencyScale = Math.max(0, latencyScale);
+	}
+
+	@Override
+	public String getId() {
+		return "replay:" + recordings.getFolder();
+	}
+
+	@Override
+	public ChatLanguageModel chatModel(String apiKey, String modelName, Double temperature) {
+		return new ChatLanguageModel() {
+			@Override
+			public ChatResponse doChat(ChatRequest request) {
+				Recording recording = find("chat", modelName, temperature, ModelRecordings.chatRequestText(request));
+				sleep(recording.totalMillis);
+				return toChatResponse(recording);
+			}
+		};
+	}
+
+	@Override
+	public StreamingChatLanguageModel streamingChatModel(String apiKey, String modelName, Double temperature) {
+		return new StreamingChatLanguageModel() {
+			@Override
+			public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+				Recording recording;
+				try {
+					recording = find("chat", modelName, temperature, ModelRecordings.chatRequestText(request));
+				} catch (IllegalStateException e) {
+					handler.onError(e);
+					return;
+				}
+				StreamingCall call = StreamingCall.current();
+				Thread.ofVirtual().name("hintforge-replay").start(() -> stream(recording, handler, call));
+			}
+		};
+	}
+
+	@Override
+	public EmbeddingModel embeddingModel(String apiKey, String modelName) {
+		return new EmbeddingModel() {
+			@Override
+			public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+				Recording recording = find("embedding", modelName, null,
+						ModelRecordings.embeddingRequestText(segments));
+				sleep(recording.totalMillis);
+				List<Embedding> embeddings = new ArrayList<>();
+				for (float[] vector : recording.embeddings) {
+					embeddings.add(Embedding.from(vector));
+				}
+				return Response.from(embeddings, new TokenUsage(recording.inputTokens));
+			}
+		};
+	}
+
+	/**
+	 * Emits the recorded response word by word: the first chunk after the recorded
+	 * time to the first token and the rest spread evenly over the remaining time.
+	 * Stops without completing once the {@link StreamingCall}, if any, is closed.
+	 */
+	private void stream(Recording recording, StreamingChatResponseHandler handler, StreamingCall call) {
+		try {
+			List<String> chunks = splitIntoChunks(recording.response);
+			long ttftMillis = recording.ttftMillis >= 0 ? recording.ttftMillis : recording.totalMillis;
+			long remainingMillis = Math.max(0, recording.totalMillis - ttftMillis);
+			long chunkMillis = chunks.size() > 1 ? remainingMillis / (chunks.size() - 1) : 0;
+
+			sleep(ttftMillis);
+			for (int i = 0; i < chunks.size(); i++) {
+				if (i > 0) {
+					sleep(chunkMillis);
+				}
+				if (call != null && call.isClosed()) {
+					return;
+				}
+				handler.onPartialResponse(chunks.get(i));
+			}
+			handler.onCompleteResponse(toChatResponse(recording));
+		} catch (RuntimeException e) {
+			handler.onError(e);
+		}
+	}
+
+	private static List<String> splitIntoChunks(String text) {
+		List<String> chunks = new ArrayList<>();
+		if (text == null || text.isEmpty()) {
+			return chunks;
+		}
+		int start = 0;
+		for (int i = 1; i < text.length(); i++) {
+			if (Character.isWhitespace(text.charAt(i)) && !Character.isWhitespace(text.charAt(i - 1))) {
+				chunks.add(text.substring(start, i));
+				start = i;
+			}
+		}
+		chunks.add(text.substring(start));
+		return chunks;
+	}
+
+	private Recording find(String kind, String modelName, Double temperature, String requestText) {
+		Recording recording = recordings.read(recordings.nextKey(kind, modelName, temperature, requestText));
+		if (recording == null) {
+			// More identical calls than were recorded, the first one stands in for them
+			recording = recordings.read(ModelRecordings.key(kind, modelName, temperature, requestText));
+		}
+		if (recording == null) {
+			throw new IllegalStateException(String.format("No recorded %s call to %s for this request in %s", kind,
+					modelName, recordings.getFolder()));
+		}
+		return recording;
+	}
+
+	private static ChatResponse toChatResponse(Recording recording) {
+		return ChatResponse.builder().aiMessage(AiMessage.from(recording.response))
+				.tokenUsage(new TokenUsage(recording.inputTokens, recording.outputTokens))
+				.finishReason(FinishReason.STOP).build();
+	}
+
+	private void sleep(long recordedMillis) {
+		long millis = Math.round(recordedMillis * latencyScale);
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Replay interrupted", e);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * State of a single assistant request shared by every thread that works on it:
+ * cancellation, deadline and progress reporting.
+ *
+ * Blocking LLM calls are run through {@link #call(Callable)}, which executes
+ * them on a separate virtual thread. Cancelling the request interrupts those
+ * threads (aborting the HTTP exchange) and makes the waiting thread fail with
+ * a {@link CancellationException} right away. Likewise, a call still running at
+ * the deadline is aborted with a {@link RequestTimeoutException}. While a call
+ * runs, {@link #current()} returns the context on its thread.
+ */
+public class RequestContext {
+
+	private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private static final AtomicLong nextId = new AtomicLong(1);
+	private static final ThreadLocal<RequestContext> current = new ThreadLocal<>();
+
+	private final long id = nextId.getAndIncrement();
+	private final Consumer<String> progressListener;
+	private final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled = false;
+	private volatile long deadlineNanos = 0;
+	private volatile boolean hasDeadline = false;
+	private volatile RetrievalSession retrievalSession = null;
+
+	public RequestContext() {
+		this(null);
+	}
+
+	/**
+	 * @param progressListener Receives a description of each step of the request,
+	 *                         or null to ignore them.
+	 */
+	public RequestContext(Consumer<String> progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * @return the context of the call running on this thread, or null if there is
+	 *         none
+	 */
+	public static RequestContext current() {
+		return current.get();
+	}
+
+	/**
+	 * @return the identifier of the request, unique within the session
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the session that shares the retrieved documentation between the
+	 *         calls of the request, or null if every call retrieves its own
+	 */
+	public RetrievalSession getRetrievalSession() {
+		return retrievalSession;
+	}
+
+	/**
+	 * Sets the session that shares the retrieved documentation between the calls
+	 * of the request, or null to let every call retrieve its own.
+	 */
+	public void setRetrievalSession(RetrievalSession retrievalSession) {
+		this.retrievalSession = retrievalSession;
+	}
+
+	/**
+	 * Cancels the request and every call in flight.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (Future<?> future : inFlight) {
+			future.cancel(true);
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @throws CancellationException if the request was cancelled
+	 */
+	public void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException("The request was cancelled");
+		}
+	}
+
+	/**
+	 * Limits the request to end within the given time from now. An earlier
+	 * deadline already set is kept.
+	 *
+	 * @param millis the time left for the request, in milliseconds
+	 */
+	public synchronized void limitTo(long millis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		if (!hasDeadline || deadline - deadlineNanos < 0) {
+			deadlineNanos = deadline;
+			hasDeadline = true;
+		}
+	}
+
+	/**
+	 * @return the time left until the deadline in milliseconds, or
+	 *         {@link Long#MAX_VALUE} if the request has no deadline
+	 */
+	public long getRemainingMillis() {
+		if (!hasDeadline) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+	}
+
+	public boolean isExpired() {
+		return hasDeadline && deadlineNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @throws RequestTimeoutException if the deadline has passed
+	 */
+	public void checkDeadline() {
+		if (isExpired()) {
+			throw new RequestTimeoutException("The request ran out of time");
+		}
+	}
+
+	/**
+	 * @throws CancellationException   if the request was cancelled
+	 * @throws RequestTimeoutException if the deadline has passed
+	 */
+	public void checkActive() {
+		checkCancelled();
+		checkDeadline();
+	}
+
+	public void progress(String message) {
+		if (progressListener != null) {
+			progressListener.accept(message);
+		}
+	}
+
+	/**
+	 * Runs a blocking call so that it can be aborted when the request is
+	 * cancelled or runs out of time.
+	 *
+	 * @param action the call to run
+	 * @return the result of the call
+	 * @throws CancellationException   if the request was cancelled
+	 * @throws RequestTimeoutException if the deadline has passed
+	 */
+	public <T> T call(Callable<T> action) {
+		checkActive();
+		return await(executor.submit(() -> {
+			current.set(this);
+			try {
+				return action.call();
+			} finally {
+				current.remove();
+			}
+		}));
+	}
+
+	/**
+	 * Waits for a future, cancelling it if the request is cancelled or runs out of
+	 * time.
+	 *
+	 * @param future the future to wait for
+	 * @return the result of the future
+	 * @throws CancellationException   if the request was cancelled
+	 * @throws RequestTimeoutException if the deadline has passed
+	 */
+	public <T> T await(Future<T> future) {
+		inFlight.add(future);
+		try {
+			// The request may have been cancelled before the future was registered
+			if (cancelled) {
+				future.cancel(true);
+			}
+			if (!hasDeadline) {
+				return future.get();
+			}
+			return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new RequestTimeoutException("The request ran out of time");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			throw new CancellationException("Interrupted while waiting for the request");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (cause instanceof Error error) {
+				throw error;
+			}
+			throw new RuntimeException(cause);
+		} finally {
+			inFlight.remove(future);
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package dev.aleiis.hintforge.assistant;
+
+/**
+ * Thrown when a request runs past its deadline (see
+ * {@link RequestContext#limitTo(long)}).
+ */
+public class RequestTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public RequestTimeoutException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,204 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the final responses of the assistants, so that repeating a request
+ * with exactly the same inputs does not go back to the LLM.
+ *
+ * Responses are kept in memory in least recently used order, up to
+ * {@link #MAX_MEMORY_CHARS} characters. If a disk folder is set, they are also
+ * written there (up to {@link #MAX_DISK_BYTES} bytes, least recently used
+ * files first out), so they survive IDE restarts.
+ */
+public class ResponseCache {
+
+	public static final long MAX_MEMORY_CHARS = 4_000_000;
+	public static final long MAX_DISK_BYTES = 64L * 1024 * 1024;
+
+	private static ResponseCache instance;
+
+	private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryChars = 0;
+	private volatile Path diskFolder = null;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private ResponseCache() {
+	}
+
+	public static synchronized ResponseCache getInstance() {
+		if (instance == null) {
+			instance = new ResponseCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Hashes the inputs of a request into a cache key. Null inputs are allowed.
+	 */
+	public static String key(List<String> inputs) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String input : inputs) {
+				digest.update(String.valueOf(input).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Sets the folder of the disk tier, or null to keep responses in memory only.
+	 */
+	public void setDiskFolder(Path diskFolder) {
+		this.diskFolder = diskFolder;
+	}
+
+	/**
+	 * @return The cached response, or null if there is none.
+	 */
+	public String get(String key) {
+		String response;
+		synchronized (this) {
+			response = entries.get(key);
+		}
+		if (response == null) {
+			response = readFromDisk(key);
+			if (response != null) {
+				putInMemory(key, response);
+			}
+		}
+		if (response != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return response;
+	}
+
+	public void put(String key, String response) {
+		if (response == null) {
+			return;
+		}
+		putInMemory(key, response);
+		writeToDisk(key, response);
+	}
+
+	/**
+	 * Drops every response kept in memory and on disk.
+	 */
+	public void clear() {
+		synchronized (this) {
+			entries.clear();
+			memoryChars = 0;
+		}
+		Path folder = diskFolder;
+		if (folder == null || !Files.isDirectory(folder)) {
+			return;
+		}
+		try (Stream<Path> files = Files.list(folder)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private synchronized void putInMemory(String key, String response) {
+		String previous = entries.put(key, response);
+		if (previous != null) {
+			memoryChars -= previous.length();
+		}
+		memoryChars += response.length();
+
+		Iterator<Map.Entry<String, String>> eldest = entries.entrySet().iterator();
+		while (memoryChars > MAX_MEMORY_CHARS && eldest.hasNext()) {
+			memoryChars -= eldest.next().getValue().length();
+			eldest.remove();
+		}
+	}
+
+	private String readFromDisk(String key) {
+		Path folder = diskFolder;
+		if (folder == null) {
+			return null;
+		}
+		Path file = folder.resolve(key + ".txt");
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try {
+			String response = Files.readString(file);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return response;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private void writeToDisk(String key, String response) {
+		Path folder = diskFolder;
+		if (folder == null) {
+			return;
+		}
+		try {
+			Files.createDirectories(folder);
+			Files.writeString(folder.resolve(key + ".txt"), response);
+			evictFromDisk(folder);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void evictFromDisk(Path folder) throws IOException {
+		List<Path> files;
+		try (Stream<Path> stream = Files.list(folder)) {
+			files = stream.filter(Files::isRegularFile).sorted(Comparator.comparing(ResponseCache::lastModified))
+					.toList();
+		}
+		long size = 0;
+		for (Path file : files) {
+			size += Files.size(file);
+		}
+		for (int i = 0; size > MAX_DISK_BYTES && i < files.size(); i++) {
+			size -= Files.size(files.get(i));
+			Files.deleteIfExists(files.get(i));
+		}
+	}
+
+	private static FileTime lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package dev.aleiis.hintforge.assistant;
+
+/**
+ * Builds the text embedded to retrieve the documentation of the DSL for a
+ * request, instead of embedding the whole prompt.
+ *
+ * The focus is the code the request is about: the code around the cursor for
+ * completions and identifiers, or the selected fragment for explanations. Each
+ * assistant can be given its own builder.
+ */
+@FunctionalInterface
+public interface RetrievalQueryBuilder {
+
+	/**
+	 * Embeds the instruction, if any, followed by the focus.
+	 */
+	RetrievalQueryBuilder COMPACT = (instruction, focus) -> {
+		if (instruction == null || instruction.isBlank()) {
+			return focus;
+		}
+		return instruction.strip() + "\n" + focus;
+	};
+
+	/**
+	 * Embeds the whole user message of each call, as done before query builders
+	 * existed.
+	 */
+	RetrievalQueryBuilder FULL_MESSAGE = (instruction, focus) -> null;
+
+	/**
+	 * @param instruction The instruction of the user, or null if there is none.
+	 * @param focus       The code the request is about.
+	 *
+	 * @return The text to embed, or null to embed the user message of each call.
+	 */
+	String build(String instruction, String focus);
+}
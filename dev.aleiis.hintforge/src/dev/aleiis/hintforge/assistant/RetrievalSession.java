@@ -0,0 +1,118 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+/**
+ * Documentation retrieved once for a request and reused by every later LLM
+ * call of the same request, so that generation and fix attempts do not embed
+ * their prompts and search the embedding store again.
+ *
+ * A session is attached to a {@link RequestContext}; the retrievers built by
+ * {@link Assistant} use the session of the request they run for, if any.
+ * Concurrent calls wait for the first retrieval instead of repeating it,
+ * through their {@link RequestContext} so that they can still be cancelled or
+ * time out. If the first retrieval fails, the next call retries it.
+ *
+ * The session may have its own query (see {@link RetrievalQueryBuilder});
+ * otherwise the query of the first call is used. The query is only built by
+ * the first retrieval, so a request that retrieves nothing never builds it.
+ */
+public class RetrievalSession {
+
+	private final Supplier<String> queryText;
+	private CompletableFuture<List<Content>> contents = null;
+	private int reuseCount = 0;
+	private long retrievalMillis = 0;
+
+	public RetrievalSession() {
+		this((String) null);
+	}
+
+	/**
+	 * @param queryText The text to embed, or null to use the query of the first
+	 *                  call.
+	 */
+	public RetrievalSession(String queryText) {
+		this(() -> queryText);
+	}
+
+	/**
+	 * @param queryText Builds the text to embed, or null to use the query of the
+	 *                  first call. Only called by the first retrieval.
+	 */
+	public RetrievalSession(Supplier<String> queryText) {
+		this.queryText = queryText;
+	}
+
+	/**
+	 * Returns the documentation retrieved for the first query of the session,
+	 * retrieving it now if this is the first query.
+	 */
+	List<Content> retrieve(Query query, ContentRetriever retriever) {
+		CompletableFuture<List<Content>> retrieval;
+		boolean first;
+		synchronized (this) {
+			first = (contents == null);
+			if (first) {
+				contents = new CompletableFuture<>();
+			} else {
+				reuseCount++;
+			}
+			retrieval = contents;
+		}
+
+		if (!first) {
+			// A copy, so that a waiter giving up does not cancel the shared retrieval
+			RequestContext context = RequestContext.current();
+			return (context != null) ? context.await(retrieval.copy()) : retrieval.join();
+		}
+
+		// Retrieved outside the lock, the other calls wait on the future instead
+		try {
+			long start = System.nanoTime();
+			String text = queryText.get();
+			Query sessionQuery = query;
+			if (text != null) {
+				// Queries built outside of an AI service have no metadata
+				sessionQuery = (query.metadata() != null) ? Query.from(text, query.metadata()) : Query.from(text);
+			}
+			List<Content> retrieved = List.copyOf(retriever.retrieve(sessionQuery));
+			synchronized (this) {
+				retrievalMillis = (System.nanoTime() - start) / 1_000_000;
+			}
+			retrieval.complete(retrieved);
+			return retrieved;
+		} catch (RuntimeException | Error e) {
+			synchronized (this) {
+				contents = null;
+			}
+			retrieval.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	public synchronized boolean hasRetrieved() {
+		return contents != null && contents.isDone();
+	}
+
+	/**
+	 * @return How long the retrieval of the session took, or 0 if it has not
+	 *         retrieved anything yet.
+	 */
+	public synchronized long getRetrievalMillis() {
+		return retrievalMillis;
+	}
+
+	/**
+	 * @return The number of retrievals avoided by reusing the first one.
+	 */
+	public synchronized int getReuseCount() {
+		return reuseCount;
+	}
+}
@@ -0,0 +1,136 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Keeps recent code suggestions with the embedding of the request that
+ * produced them, so that a request that is nearly the same (it only differs in
+ * whitespace or in code far from the cursor) can reuse the suggestion.
+ *
+ * The cache only finds candidates: callers must verify a reused suggestion
+ * against the current document before returning it. Requests are only
+ * compared with requests of the same scope (assistant, model and profile).
+ */
+public class SemanticCache {
+
+	public static final int MAX_ENTRIES = 512;
+
+	private static SemanticCache instance;
+
+	private final Deque<Entry> entries = new ArrayDeque<>();
+
+	private SemanticCache() {
+	}
+
+	public static synchronized SemanticCache getInstance() {
+		if (instance == null) {
+			instance = new SemanticCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Builds the text embedded for a request: the instruction and the code around
+	 * the cursor with every run of whitespace collapsed into a single space.
+	 */
+	public static String normalize(String instruction, String localContext) {
+		return String.format("INSTRUCTION: %s\nCODE: %s", collapseWhitespace(instruction),
+				collapseWhitespace(localContext));
+	}
+
+	private static String collapseWhitespace(String text) {
+		if (text == null) {
+			return "";
+		}
+		return text.strip().replaceAll("\\s+", " ");
+	}
+
+	/**
+	 * Finds the suggestion of the most similar request of the scope.
+	 *
+	 * @param scope     The scope of the request.
+	 * @param vector    The embedding of the normalized request.
+	 * @param threshold The minimum cosine similarity, between 0 and 1.
+	 *
+	 * @return The suggestion, or null if no request is similar enough.
+	 */
+	public synchronized String find(String scope, float[] vector, double threshold) {
+		float[] normalized = normalizeVector(vector);
+		Entry best = null;
+		double bestSimilarity = threshold;
+		for (Entry entry : entries) {
+			if (!entry.scope.equals(scope) || entry.vector.length != normalized.length) {
+				continue;
+			}
+			double similarity = dot(entry.vector, normalized);
+			if (similarity >= bestSimilarity) {
+				best = entry;
+				bestSimilarity = similarity;
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		// Keep the entry as the most recently used
+		entries.remove(best);
+		entries.addFirst(best);
+		return best.suggestion;
+	}
+
+	public synchronized void put(String scope, float[] vector, String suggestion) {
+		if (suggestion == null) {
+			return;
+		}
+		float[] normalized = normalizeVector(vector);
+		Iterator<Entry> iterator = entries.iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.scope.equals(scope) && entry.suggestion.equals(suggestion)) {
+				iterator.remove();
+			}
+		}
+		entries.addFirst(new Entry(scope, normalized, suggestion));
+		while (entries.size() > MAX_ENTRIES) {
+			entries.removeLast();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	private static float[] normalizeVector(float[] vector) {
+		double norm = Math.sqrt(dot(vector, vector));
+		float[] normalized = new float[vector.length];
+		if (norm == 0) {
+			return normalized;
+		}
+		for (int i = 0; i < vector.length; i++) {
+			normalized[i] = (float) (vector[i] / norm);
+		}
+		return normalized;
+	}
+
+	private static double dot(float[] a, float[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	private static final class Entry {
+
+		private final String scope;
+		private final float[] vector;
+		private final String suggestion;
+
+		private Entry(String scope, float[] vector, String suggestion) {
+			this.scope = scope;
+			this.vector = vector;
+			this.suggestion = suggestion;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical requests that run at the same time: the first one does
+ * the work and the others wait for its result instead of repeating the LLM
+ * calls.
+ *
+ * Every waiting request still honours its own {@link RequestContext}. If the
+ * request doing the work is cancelled or runs out of time, the requests still
+ * active retry, and one of them does the work instead.
+ */
+public class SingleFlight {
+
+	private static SingleFlight instance;
+
+	private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong savedCalls = new AtomicLong();
+
+	private SingleFlight() {
+	}
+
+	public static synchronized SingleFlight getInstance() {
+		if (instance == null) {
+			instance = new SingleFlight();
+		}
+		return instance;
+	}
+
+	/**
+	 * Runs the request, or waits for an identical one already running.
+	 *
+	 * @param key     Identifies the request; identical requests have equal keys.
+	 * @param context The context of the request.
+	 * @param request Does the work of the request.
+	 *
+	 * @return The result of the request.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T run(String key, RequestContext context, Supplier<T> request) {
+		while (true) {
+			CompletableFuture<Object> future = new CompletableFuture<>();
+			CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+			if (running == null) {
+				return (T) lead(key, future, request);
+			}
+
+			try {
+				// Waits on a copy, so that giving up does not cancel the shared future
+				T result = (T) context.await(running.thenApply(value -> value));
+				savedCalls.incrementAndGet();
+				return result;
+			} catch (CancellationException | RequestTimeoutException e) {
+				context.checkActive();
+			}
+		}
+	}
+
+	private Object lead(String key, CompletableFuture<Object> future, Supplier<?> request) {
+		Object result;
+		try {
+			result = request.get();
+		} catch (RuntimeException | Error e) {
+			inFlight.remove(key, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+		inFlight.remove(key, future);
+		future.complete(result);
+		return result;
+	}
+
+	/**
+	 * @return The number of requests answered with the result of an identical
+	 *         request instead of doing the work themselves.
+	 */
+	public long getSavedCalls() {
+		return savedCalls.get();
+	}
+}
@@ -0,0 +1,166 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+
+/**
+ * A streamed LLM call that can be closed before the model finishes, so that an
+ * abandoned stream stops consuming tokens. Closing a {@code TokenStream} is not
+ * supported by langchain4j.
+ *
+ * The stream must be started through {@link #start(Runnable)}. The HTTP client
+ * built by {@link #httpClientBuilder()} attaches the response body of the
+ * exchange started on that thread to the call, and {@link #abort()} closes it,
+ * which aborts the exchange. Closing the call aborts it too.
+ */
+class StreamingCall implements AutoCloseable {
+
+	private static final ThreadLocal<StreamingCall> starting = new ThreadLocal<>();
+
+	private InputStream body = null;
+	private boolean closed = false;
+
+	/**
+	 * @return the call being started on this thread, or null if there is none
+	 */
+	static StreamingCall current() {
+		return starting.get();
+	}
+
+	/**
+	 * Starts the stream, attaching the exchanges started on this thread to the
+	 * call.
+	 */
+	void start(Runnable start) {
+		starting.set(this);
+		try {
+			start.run();
+		} finally {
+			starting.remove();
+		}
+	}
+
+	synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() {
+		abort();
+	}
+
+	/**
+	 * Closes the response body of the call, now or as soon as it arrives.
+	 */
+	void abort() {
+		InputStream attached;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			attached = body;
+			body = null;
+		}
+		closeQuietly(attached);
+	}
+
+	/**
+	 * @return whether the body was attached, or false if the call is already
+	 *         closed
+	 */
+	private synchronized boolean attach(InputStream body) {
+		if (closed) {
+			return false;
+		}
+		this.body = body;
+		return true;
+	}
+
+	private static void closeQuietly(InputStream body) {
+		if (body == null) {
+			return;
+		}
+		try {
+			body.close();
+		} catch (IOException e) {
+			// The exchange is being abandoned anyway
+		}
+	}
+
+	/**
+	 * @return a builder of JDK HTTP clients whose streamed responses can be
+	 *         closed through the {@link StreamingCall} they were started in
+	 */
+	static HttpClientBuilder httpClientBuilder() {
+		return new ClosableHttpClientBuilder(JdkHttpClient.builder());
+	}
+
+	private static final class ClosableHttpClientBuilder implements HttpClientBuilder {
+
+		private final HttpClientBuilder delegate;
+
+		private ClosableHttpClientBuilder(HttpClientBuilder delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Duration connectTimeout() {
+			return delegate.connectTimeout();
+		}
+
+		@Override
+		public HttpClientBuilder connectTimeout(Duration timeout) {
+			delegate.connectTimeout(timeout);
+			return this;
+		}
+
+		@Override
+		public Duration readTimeout() {
+			return delegate.readTimeout();
+		}
+
+		@Override
+		public HttpClientBuilder readTimeout(Duration timeout) {
+			delegate.readTimeout(timeout);
+			return this;
+		}
+
+		@Override
+		public HttpClient build() {
+			HttpClient client = delegate.build();
+			return new HttpClient() {
+				@Override
+				public SuccessfulHttpResponse execute(HttpRequest request) {
+					return client.execute(request);
+				}
+
+				@Override
+				public void execute(HttpRequest request, ServerSentEventParser parser,
+						ServerSentEventListener listener) {
+					StreamingCall call = current();
+					if (call == null) {
+						client.execute(request, parser, listener);
+						return;
+					}
+					client.execute(request, (body, bodyListener) -> {
+						if (!call.attach(body)) {
+							closeQuietly(body);
+							return;
+						}
+						parser.parse(body, bodyListener);
+					}, listener);
+				}
+			};
+		}
+	}
+}
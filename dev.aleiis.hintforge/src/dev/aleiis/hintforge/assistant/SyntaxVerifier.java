@@ -4,13 +4,27 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.AbstractRule;
+import org.eclipse.xtext.GrammarUtil;
+import org.eclipse.xtext.RuleCall;
+import org.eclipse.xtext.nodemodel.ICompositeNode;
+import org.eclipse.xtext.nodemodel.INode;
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
+import org.eclipse.xtext.parser.IParseResult;
+import org.eclipse.xtext.resource.XtextResource;
 import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.util.ITextRegion;
 import org.eclipse.xtext.validation.CheckMode;
 import org.eclipse.xtext.validation.IResourceValidator;
 import org.eclipse.xtext.validation.Issue;
@@ -19,58 +33,349 @@ import com.google.inject.Injector;
 
 public class SyntaxVerifier {
 
+    /**
+     * Lifecycle of the resources created to validate code.
+     */
+    public enum ResourceMode {
+        /** A fresh resource is created for each validation and removed afterwards. */
+        DISPOSE,
+        /** A single resource is unloaded and loaded again for each validation. */
+        REUSE
+    }
+
+    /**
+     * Maximum number of resources the resource set may hold between validations.
+     * Resources loaded while linking (e.g. imported files) are dropped when this
+     * is exceeded.
+     */
+    private static final int MAX_RESOURCES = 16;
+
+    private static final Pattern ETYPE_ERROR_PATTERN = Pattern.compile("^Couldn't resolve reference to");
+    private static final Pattern LINKING_ERROR_PATTERN = Pattern.compile("Linking$");
+    private static final Pattern ISSUE_LOCATION_PATTERN = Pattern.compile("\\( line : (\\d+); column : (\\d+)\\)$");
+
     private final Injector injector;
     private final XtextResourceSet resourceSet;
+    /**
+     * Holds the baseline alone, so that the other documents never resolve their
+     * references against it.
+     */
+    private final XtextResourceSet baselineResourceSet;
     private final IResourceValidator validator;
     private final String fileExtension;
+    private ResourceMode resourceMode = ResourceMode.REUSE;
+    private Resource reusableResource = null;
+    private boolean incrementalParsing = true;
+    private XtextResource baselineResource = null;
+    private String baselineCode = null;
 
     public SyntaxVerifier(String standaloneSetupClassName, String fileExtension) {
+        this(createInjector(standaloneSetupClassName), fileExtension);
+    }
+
+    /**
+     * Creates a verifier on top of an already initialized injector. Every
+     * verifier owns its own {@link XtextResourceSet}s, so verifiers sharing the
+     * same injector can be used independently.
+     *
+     * @param injector      the injector of the DSL
+     * @param fileExtension the file extension of the DSL
+     */
+    public SyntaxVerifier(Injector injector, String fileExtension) {
+        this.injector = injector;
         this.fileExtension = fileExtension;
+        this.resourceSet = injector.getInstance(XtextResourceSet.class);
+        this.baselineResourceSet = injector.getInstance(XtextResourceSet.class);
+        this.validator = injector.getInstance(IResourceValidator.class);
+    }
 
+    /**
+     * Reflectively runs {@code createInjectorAndDoEMFRegistration()} on the given
+     * StandaloneSetup class. This registers the EMF packages of the DSL globally,
+     * so it should be done once per StandaloneSetup class.
+     *
+     * @param standaloneSetupClassName fully qualified name of the StandaloneSetup
+     *                                 class
+     * @return the injector of the DSL
+     */
+    public static Injector createInjector(String standaloneSetupClassName) {
         try {
             Class<?> standaloneSetupClass = Class.forName(standaloneSetupClassName);
             Object standaloneSetupInstance = standaloneSetupClass.getDeclaredConstructor().newInstance();
             Method injectorMethod = standaloneSetupClass.getMethod("createInjectorAndDoEMFRegistration");
-            this.injector = (Injector) injectorMethod.invoke(standaloneSetupInstance);
-            this.resourceSet = injector.getInstance(XtextResourceSet.class);
-            this.validator = injector.getInstance(IResourceValidator.class);
+            return (Injector) injectorMethod.invoke(standaloneSetupInstance);
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize SyntaxVerifier", e);
         }
     }
 
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public ResourceMode getResourceMode() {
+        return resourceMode;
+    }
+
+    public void setResourceMode(ResourceMode resourceMode) {
+        if (resourceMode == null) {
+            throw new IllegalArgumentException("resourceMode cannot be null");
+        }
+        if (this.resourceMode != resourceMode) {
+            clearResources();
+        }
+        this.resourceMode = resourceMode;
+    }
+
+    public boolean isIncrementalParsing() {
+        return incrementalParsing;
+    }
+
+    public void setIncrementalParsing(boolean incrementalParsing) {
+        this.incrementalParsing = incrementalParsing;
+        if (!incrementalParsing) {
+            dropBaseline();
+        }
+    }
+
+    /**
+     * Validates the code that results from inserting a fragment in a baseline
+     * document.
+     * 
+     * With incremental parsing enabled, the baseline is parsed once and kept
+     * loaded between calls. Each insertion is applied with a partial reparse
+     * ({@link XtextResource#update(int, int, String)}, which delegates to
+     * {@code IParser.reparse} with a {@code ReplaceRegion}) and reverted the same
+     * way after validation. Otherwise, the whole completed document is parsed
+     * again with {@link #validate(String, boolean)}.
+     *
+     * @param baseline           the document without the fragment
+     * @param offset             offset of the insertion in the baseline
+     * @param insertion          the fragment to insert
+     * @param excludeEtypeErrors whether unresolved reference errors are ignored
+     * @return the issues found in the completed document
+     */
+    public List<String> validateInsertion(String baseline, int offset, String insertion, boolean excludeEtypeErrors) {
+        if (!incrementalParsing) {
+            return validate(baseline.substring(0, offset) + insertion + baseline.substring(offset), excludeEtypeErrors);
+        }
+
+        try {
+            XtextResource resource = loadBaseline(baseline);
+            if (insertion.isEmpty()) {
+                return collectIssues(resource, excludeEtypeErrors);
+            }
+            resource.update(offset, 0, insertion);
+            try {
+                return collectIssues(resource, excludeEtypeErrors);
+            } finally {
+                resource.update(offset, insertion.length(), "");
+            }
+        } catch (IOException | RuntimeException e) {
+            // The partial parse left the baseline in an unknown state
+            dropBaseline();
+            return validate(baseline.substring(0, offset) + insertion + baseline.substring(offset), excludeEtypeErrors);
+        }
+    }
+
+    private XtextResource loadBaseline(String baseline) throws IOException {
+        if (baselineResource != null && baselineResource.isLoaded() && baseline.equals(baselineCode)) {
+            return baselineResource;
+        }
+        if (baselineResource == null) {
+            Resource resource = baselineResourceSet.createResource(URI.createURI("dummy:/baseline." + fileExtension));
+            if (!(resource instanceof XtextResource xtextResource)) {
+                baselineResourceSet.getResources().remove(resource);
+                incrementalParsing = false;
+                throw new IllegalStateException("The DSL resources do not support partial parsing.");
+            }
+            baselineResource = xtextResource;
+        }
+        baselineResource.unload();
+        baselineCode = null;
+        baselineResource.load(new ByteArrayInputStream(baseline.getBytes()), null);
+        baselineCode = baseline;
+        return baselineResource;
+    }
+
+    /**
+     * Releases the parsed baseline, if any. The next call parses its code again.
+     */
+    public void dropBaseline() {
+        for (Resource resource : baselineResourceSet.getResources()) {
+            resource.unload();
+        }
+        baselineResourceSet.getResources().clear();
+        baselineResource = null;
+        baselineCode = null;
+    }
+
     public List<String> validate(String code, boolean excludeEtypeErrors) {
         if (injector == null || resourceSet == null || validator == null || fileExtension == null) {
             throw new IllegalStateException("SyntaxVerifier not configured properly.");
         }
 
-        Resource resource = resourceSet.createResource(
-            URI.createURI("dummy:/dummy_" + UUID.randomUUID().toString() + "." + fileExtension)
-        );
-
+        Resource resource = obtainResource();
         List<String> issues = new ArrayList<>();
 
         try {
             resource.load(new ByteArrayInputStream(code.getBytes()), null);
-            List<Issue> allIssues = validator.validate(resource, CheckMode.ALL, null);
-            if (!allIssues.isEmpty()) {
-                Pattern etypeErrorPattern = Pattern.compile("^Couldn't resolve reference to");
-                Pattern linkingErrorPattern = Pattern.compile("Linking$");
-                for (Issue issue : allIssues) {
-                    if (excludeEtypeErrors &&
-                        issue.getCode() != null && linkingErrorPattern.matcher(issue.getCode()).find() &&
-                        issue.getMessage() != null && etypeErrorPattern.matcher(issue.getMessage()).find()) {
-                        continue;
-                    }
-                    issues.add(issueToString(issue));
+            issues = collectIssues(resource, excludeEtypeErrors);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            recycleResource(resource);
+        }
+
+        return issues;
+    }
+
+    /**
+     * Parses the code and returns the names of the grammar rules that enclose the
+     * given offset, from the innermost to the outermost one.
+     *
+     * @param code   the code to parse
+     * @param offset the offset of interest
+     * @return the names of the enclosing rules, empty if the code could not be parsed
+     */
+    public List<String> findRulesAt(String code, int offset) {
+        return withLeafAt(code, offset, leaf -> {
+            Set<String> ruleNames = new LinkedHashSet<>();
+            for (INode node = leaf; node != null; node = node.getParent()) {
+                addRuleNames(node.getGrammarElement(), ruleNames);
+            }
+            return new ArrayList<>(ruleNames);
+        });
+    }
+
+    /**
+     * Parses the code and returns the text regions of the elements that enclose
+     * the given offset, from the innermost to the outermost one. Regions include
+     * the hidden tokens (comments, whitespace) of the elements.
+     *
+     * @param code   the code to parse
+     * @param offset the offset of interest
+     * @return the enclosing regions, empty if the code could not be parsed
+     */
+    public List<ITextRegion> findEnclosingRegions(String code, int offset) {
+        return withLeafAt(code, offset, leaf -> {
+            List<ITextRegion> regions = new ArrayList<>();
+            for (INode node = leaf; node != null; node = node.getParent()) {
+                ITextRegion region = node.getTotalTextRegion();
+                if (regions.isEmpty() || !regions.get(regions.size() - 1).equals(region)) {
+                    regions.add(region);
                 }
             }
+            return regions;
+        });
+    }
+
+    /**
+     * Parses the code and runs an action on the leaf node at the given offset,
+     * or on null if the code could not be parsed.
+     *
+     * With incremental parsing enabled, the code is parsed as the baseline of
+     * {@link #validateInsertion(String, int, String, boolean)} and kept loaded,
+     * so the rules, the enclosing regions and the validation of the insertions
+     * of a request share a single parse.
+     */
+    private <T> T withLeafAt(String code, int offset, Function<INode, T> action) {
+        if (incrementalParsing) {
+            XtextResource baseline = null;
+            try {
+                baseline = loadBaseline(code);
+            } catch (IOException | RuntimeException e) {
+                // Parsed once more below, without keeping it as the baseline
+                dropBaseline();
+            }
+            if (baseline != null) {
+                return action.apply(findLeafAt(baseline, offset));
+            }
+        }
+
+        Resource resource = obtainResource();
+        try {
+            resource.load(new ByteArrayInputStream(code.getBytes()), null);
+            INode leaf = (resource instanceof XtextResource xtextResource) ? findLeafAt(xtextResource, offset) : null;
+            return action.apply(leaf);
         } catch (IOException e) {
             e.printStackTrace();
+            return action.apply(null);
+        } finally {
+            recycleResource(resource);
+        }
+    }
+
+    private INode findLeafAt(XtextResource resource, int offset) {
+        IParseResult parseResult = resource.getParseResult();
+        ICompositeNode rootNode = (parseResult != null) ? parseResult.getRootNode() : null;
+        if (rootNode == null) {
+            return null;
+        }
+        int leafOffset = Math.max(0, Math.min(offset, rootNode.getTotalEndOffset() - 1));
+        return NodeModelUtils.findLeafNodeAtOffset(rootNode, leafOffset);
+    }
+
+    private void addRuleNames(EObject grammarElement, Set<String> ruleNames) {
+        if (grammarElement instanceof RuleCall ruleCall && ruleCall.getRule() != null) {
+            ruleNames.add(ruleCall.getRule().getName());
+        }
+        if (grammarElement != null) {
+            AbstractRule rule = GrammarUtil.containingRule(grammarElement);
+            if (rule != null) {
+                ruleNames.add(rule.getName());
+            }
         }
+    }
 
+    private List<String> collectIssues(Resource resource, boolean excludeEtypeErrors) {
+        List<String> issues = new ArrayList<>();
+        List<Issue> allIssues = validator.validate(resource, CheckMode.ALL, null);
+        for (Issue issue : allIssues) {
+            if (excludeEtypeErrors &&
+                issue.getCode() != null && LINKING_ERROR_PATTERN.matcher(issue.getCode()).find() &&
+                issue.getMessage() != null && ETYPE_ERROR_PATTERN.matcher(issue.getMessage()).find()) {
+                continue;
+            }
+            issues.add(issueToString(issue));
+        }
         return issues;
     }
+
+    private Resource obtainResource() {
+        if (resourceMode == ResourceMode.REUSE) {
+            if (reusableResource == null) {
+                reusableResource = resourceSet.createResource(URI.createURI("dummy:/dummy." + fileExtension));
+            }
+            return reusableResource;
+        }
+        return resourceSet.createResource(
+            URI.createURI("dummy:/dummy_" + UUID.randomUUID().toString() + "." + fileExtension)
+        );
+    }
+
+    /**
+     * Releases the parsed content of a validated resource, so the resource set
+     * never holds more than {@link #MAX_RESOURCES} resources regardless of how
+     * many validations are run.
+     */
+    private void recycleResource(Resource resource) {
+        resource.unload();
+        if (resourceMode == ResourceMode.DISPOSE) {
+            resourceSet.getResources().remove(resource);
+        }
+        if (resourceSet.getResources().size() > MAX_RESOURCES) {
+            clearResources();
+        }
+    }
+
+    private void clearResources() {
+        for (Resource resource : resourceSet.getResources()) {
+            resource.unload();
+        }
+        resourceSet.getResources().clear();
+        reusableResource = null;
+    }
     
     public String issueToString(Issue issue) {
     	StringBuilder result = new StringBuilder(issue.getSeverity().name());
@@ -79,4 +384,26 @@ public class SyntaxVerifier {
 		result.append(" line : ").append(issue.getLineNumber()).append("; column : ").append(issue.getColumn()).append(")");
 		return result.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Makes the line of an issue formatted by {@link #issueToString(Issue)}
+     * relative to a window of the code. Issues outside of the window lose their
+     * location.
+     *
+     * @param issue     the formatted issue
+     * @param firstLine the line of the code where the window starts, from 1
+     * @param lineCount the number of lines of the window
+     * @return the issue with the line in the window
+     */
+    public static String rebaseIssueLine(String issue, int firstLine, int lineCount) {
+        Matcher matcher = ISSUE_LOCATION_PATTERN.matcher(issue);
+        if (!matcher.find()) {
+            return issue;
+        }
+        int line = Integer.parseInt(matcher.group(1)) - firstLine + 1;
+        String location = (line >= 1 && line <= lineCount)
+            ? String.format("( line : %d; column : %s)", line, matcher.group(2))
+            : "(outside of the code shown)";
+        return issue.substring(0, matcher.start()) + location;
+    }
+}
@@ -0,0 +1,132 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Injector;
+
+/**
+ * Shares the Guice injectors of the DSLs and pools their {@link SyntaxVerifier}
+ * instances.
+ *
+ * The injector of a StandaloneSetup class is created only once, the first time
+ * a verifier for it is requested. Verifiers are handed out with
+ * {@link #acquire(String, String)} and must be given back with
+ * {@link #release(String, SyntaxVerifier)} once the caller is done with them. A
+ * verifier is never shared by two callers at the same time.
+ */
+public class SyntaxVerifierRegistry {
+
+	private static final int MAX_IDLE_VERIFIERS = Runtime.getRuntime().availableProcessors();
+
+	private static Logger logger = LoggerFactory.getLogger(SyntaxVerifierRegistry.class);
+
+	private static SyntaxVerifierRegistry instance;
+
+	private final Map<String, Injector> injectors = new ConcurrentHashMap<>();
+	private final Map<String, Deque<SyntaxVerifier>> idleVerifiers = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong injectorCreations = new AtomicLong();
+	private final AtomicLong injectorCreationNanos = new AtomicLong();
+
+	private SyntaxVerifierRegistry() {
+	}
+
+	public static synchronized SyntaxVerifierRegistry getInstance() {
+		if (instance == null) {
+			instance = new SyntaxVerifierRegistry();
+		}
+		return instance;
+	}
+
+	/**
+	 * Hands out a verifier for the given DSL. An idle pooled verifier is reused if
+	 * available, otherwise a new one is created on top of the shared injector.
+	 *
+	 * @param standaloneSetupClass fully qualified name of the StandaloneSetup class
+	 * @param fileExtension        file extension of the DSL
+	 * @return a verifier owned by the caller until it is released
+	 */
+	public SyntaxVerifier acquire(String standaloneSetupClass, String fileExtension) {
+		SyntaxVerifier verifier = getIdleVerifiers(standaloneSetupClass, fileExtension).pollFirst();
+		if (verifier != null) {
+			hits.incrementAndGet();
+			return verifier;
+		}
+
+		misses.incrementAndGet();
+		Injector injector = injectors.computeIfAbsent(standaloneSetupClass, this::createInjector);
+		return new SyntaxVerifier(injector, fileExtension);
+	}
+
+	/**
+	 * Gives a verifier back to the pool. If the pool is already full, the verifier
+	 * is discarded. If other verifiers are idle, its parsed baseline is dropped.
+	 *
+	 * @param standaloneSetupClass fully qualified name of the StandaloneSetup class
+	 * @param verifier             the verifier obtained with
+	 *                             {@link #acquire(String, String)}
+	 */
+	public void release(String standaloneSetupClass, SyntaxVerifier verifier) {
+		if (verifier == null) {
+			return;
+		}
+		Deque<SyntaxVerifier> idle = getIdleVerifiers(standaloneSetupClass, verifier.getFileExtension());
+		if (idle.size() < MAX_IDLE_VERIFIERS) {
+			// Only a verifier released to an empty pool keeps its parsed baseline, so
+			// the idle verifiers hold at most one document between requests
+			if (!idle.isEmpty()) {
+				verifier.dropBaseline();
+			}
+			idle.offerFirst(verifier);
+		}
+	}
+
+	/**
+	 * Drops every injector and pooled verifier.
+	 */
+	public void clear() {
+		idleVerifiers.clear();
+		injectors.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getInjectorCreations() {
+		return injectorCreations.get();
+	}
+
+	public long getInjectorCreationMillis() {
+		return injectorCreationNanos.get() / 1_000_000;
+	}
+
+	private Deque<SyntaxVerifier> getIdleVerifiers(String standaloneSetupClass, String fileExtension) {
+		return idleVerifiers.computeIfAbsent(standaloneSetupClass + ":" + fileExtension,
+				key -> new ConcurrentLinkedDeque<>());
+	}
+
+	private Injector createInjector(String standaloneSetupClass) {
+		long start = System.nanoTime();
+		Injector injector = SyntaxVerifier.createInjector(standaloneSetupClass);
+		long elapsed = System.nanoTime() - start;
+
+		injectorCreations.incrementAndGet();
+		injectorCreationNanos.addAndGet(elapsed);
+		logger.debug(String.format("Injector created for %s in %d ms", standaloneSetupClass, elapsed / 1_000_000));
+		return injector;
+	}
+}
@@ -0,0 +1,290 @@
+package dev.aleiis.hintforge.assistant;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Keeps timing spans of the stages of the recent assistant requests in a
+ * fixed-size ring buffer, so they can be inspected from the UI or exported as
+ * JSON. When the buffer is full the oldest spans are dropped.
+ *
+ * Spans are opened with {@link #start(Stage, RequestContext)} and recorded
+ * when closed:
+ *
+ * <pre>
+ * try (Telemetry.Span span = Telemetry.getInstance().start(Stage.TRIM, context)) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Every span is also emitted as a Java Flight Recorder event (see
+ * {@link HintForgeEvents}).
+ */
+public class Telemetry {
+
+	public static final int CAPACITY = 4096;
+
+	private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+	private static Telemetry instance;
+
+	private final Span[] spans = new Span[CAPACITY];
+	private int next = 0;
+	private int size = 0;
+
+	public enum Stage {
+		/** A whole code completion request. */
+		SESSION,
+		/** Loading the grammar and the examples of a prompt. */
+		PROMPT_ASSEMBLY,
+		/** Embedding the query and searching the embedding store. */
+		RETRIEVAL,
+		/** A single call to the LLM. */
+		LLM_CALL,
+		/** Trimming the overlap of a suggestion with the code. */
+		TRIM,
+		/** A single syntax validation. */
+		VALIDATION,
+		/** Embedding and storing the segments of a documentation file. */
+		INGESTION
+	}
+
+	private Telemetry() {
+	}
+
+	public static synchronized Telemetry getInstance() {
+		if (instance == null) {
+			instance = new Telemetry();
+		}
+		return instance;
+	}
+
+	/**
+	 * Opens a span of the given stage. The span is recorded when it is closed.
+	 *
+	 * @param context The request the stage belongs to, or null if unknown.
+	 */
+	public Span start(Stage stage, RequestContext context) {
+		return new Span(stage, (context != null) ? context.getId() : 0);
+	}
+
+	private synchronized void record(Span span) {
+		spans[next] = span;
+		next = (next + 1) % CAPACITY;
+		size = Math.min(size + 1, CAPACITY);
+	}
+
+	/**
+	 * @return The spans in the buffer, oldest first.
+	 */
+	public synchronized List<Span> getSpans() {
+		List<Span> result = new ArrayList<>(size);
+		int first = (next - size + CAPACITY) % CAPACITY;
+		for (int i = 0; i < size; i++) {
+			result.add(spans[(first + i) % CAPACITY]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The spans of the given request, oldest first.
+	 */
+	public List<Span> getSpans(long requestId) {
+		return getSpans().stream().filter(span -> span.requestId == requestId).toList();
+	}
+
+	/**
+	 * @return The number of spans and their total duration in milliseconds for
+	 *         every stage, over the spans in the buffer.
+	 */
+	public Map<Stage, StageSummary> summarize() {
+		Map<Stage, StageSummary> summary = new EnumMap<>(Stage.class);
+		for (Stage stage : Stage.values()) {
+			summary.put(stage, new StageSummary());
+		}
+		for (Span span : getSpans()) {
+			StageSummary stageSummary = summary.get(span.stage);
+			stageSummary.count++;
+			stageSummary.totalMillis += span.durationMillis;
+			stageSummary.maxMillis = Math.max(stageSummary.maxMillis, span.durationMillis);
+		}
+		return summary;
+	}
+
+	/**
+	 * @return The spans in the buffer as a JSON array, oldest first.
+	 */
+	public String toJson() {
+		return gson.toJson(getSpans());
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < CAPACITY; i++) {
+			spans[i] = null;
+		}
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * A timed stage of a request. Token counts and attempt numbers are negative
+	 * when they do not apply.
+	 */
+	public static final class Span implements AutoCloseable {
+
+		private final long requestId;
+		private final Stage stage;
+		private final long startEpochMillis;
+		private final transient long startNanos;
+		/** Null if no JFR recording had the stage enabled when the span started. */
+		private final transient HintForgeEvents.SpanEvent event;
+		private String profile = null;
+		private String detail = null;
+		private int attempt = -1;
+		private int promptTokens = -1;
+		private int completionTokens = -1;
+		private int payloadChars = -1;
+		private double durationMillis = 0;
+		private transient boolean closed = false;
+
+		private Span(Stage stage, long requestId) {
+			this.requestId = requestId;
+			this.stage = stage;
+			this.startEpochMillis = System.currentTimeMillis();
+			this.startNanos = System.nanoTime();
+			this.event = HintForgeEvents.create(stage);
+			if (event != null) {
+				event.begin();
+			}
+		}
+
+		public Span profile(String profile) {
+			this.profile = profile;
+			return this;
+		}
+
+		public Span detail(String detail) {
+			this.detail = detail;
+			return this;
+		}
+
+		public Span attempt(int attempt) {
+			this.attempt = attempt;
+			return this;
+		}
+
+		public Span promptTokens(int promptTokens) {
+			this.promptTokens = promptTokens;
+			return this;
+		}
+
+		public Span completionTokens(int completionTokens) {
+			this.completionTokens = completionTokens;
+			return this;
+		}
+
+		/**
+		 * Sets the size in characters of the data the stage worked on.
+		 */
+		public Span payloadChars(int payloadChars) {
+			this.payloadChars = payloadChars;
+			return this;
+		}
+
+		/**
+		 * Stops the span and records it. Closing it again has no effect.
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			durationMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+			Telemetry.getInstance().record(this);
+
+			if (event == null) {
+				return;
+			}
+			event.end();
+			if (event.shouldCommit()) {
+				event.profile = profile;
+				event.requestId = requestId;
+				event.detail = detail;
+				event.attempt = attempt;
+				event.promptTokens = promptTokens;
+				event.completionTokens = completionTokens;
+				event.payloadChars = payloadChars;
+				event.commit();
+			}
+		}
+
+		public long getRequestId() {
+			return requestId;
+		}
+
+		public Stage getStage() {
+			return stage;
+		}
+
+		public long getStartEpochMillis() {
+			return startEpochMillis;
+		}
+
+		public String getProfile() {
+			return profile;
+		}
+
+		public String getDetail() {
+			return detail;
+		}
+
+		public int getAttempt() {
+			return attempt;
+		}
+
+		public int getPromptTokens() {
+			return promptTokens;
+		}
+
+		public int getCompletionTokens() {
+			return completionTokens;
+		}
+
+		public int getPayloadChars() {
+			return payloadChars;
+		}
+
+		public double getDurationMillis() {
+			return durationMillis;
+		}
+	}
+
+	public static final class StageSummary {
+
+		private int count = 0;
+		private double totalMillis = 0;
+		private double maxMillis = 0;
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getTotalMillis() {
+			return totalMillis;
+		}
+
+		public double getAverageMillis() {
+			return (count > 0) ? totalMillis / count : 0;
+		}
+
+		public double getMaxMillis() {
+			return maxMillis;
+		}
+	}
+}
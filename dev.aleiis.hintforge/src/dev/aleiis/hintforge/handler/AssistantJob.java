@@ -0,0 +1,90 @@
+package dev.aleiis.hintforge.handler;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+import dev.aleiis.hintforge.assistant.RequestContext;
+
+/**
+ * Runs an assistant request in the background so the UI thread is never
+ * blocked by the LLM.
+ *
+ * The progress of the request is shown in the progress view, where the user
+ * can cancel it. Cancelling the job cancels its {@link RequestContext}, which
+ * aborts the calls in flight. The result or the error is handed back on the
+ * display thread; nothing is handed back if the job was cancelled.
+ */
+public class AssistantJob<T> extends Job {
+
+	private final Function<RequestContext, T> request;
+	private final Display display;
+	private final Consumer<T> onResult;
+	private final Consumer<Throwable> onError;
+	private volatile RequestContext context = null;
+
+	/**
+	 * @param name     Name of the job shown to the user.
+	 * @param request  The request to run, with the context it must honour.
+	 * @param display  Display whose thread receives the result.
+	 * @param onResult Receives the result on the display thread.
+	 * @param onError  Receives the error on the display thread.
+	 */
+	public AssistantJob(String name, Function<RequestContext, T> request, Display display, Consumer<T> onResult,
+			Consumer<Throwable> onError) {
+		super(name);
+		this.request = request;
+		this.display = display;
+		this.onResult = onResult;
+		this.onError = onError;
+		setPriority(Job.INTERACTIVE);
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+		context = new RequestContext(monitor::subTask);
+		if (monitor.isCanceled()) {
+			context.cancel();
+		}
+
+		try {
+			T result = request.apply(context);
+			if (context.isCancelled()) {
+				return Status.CANCEL_STATUS;
+			}
+			asyncExec(() -> onResult.accept(result));
+		} catch (CancellationException e) {
+			return Status.CANCEL_STATUS;
+		} catch (RuntimeException e) {
+			if (context.isCancelled()) {
+				return Status.CANCEL_STATUS;
+			}
+			e.printStackTrace();
+			asyncExec(() -> onError.accept(e));
+		} finally {
+			monitor.done();
+		}
+		return Status.OK_STATUS;
+	}
+
+	@Override
+	protected void canceling() {
+		RequestContext current = context;
+		if (current != null) {
+			current.cancel();
+		}
+	}
+
+	private void asyncExec(Runnable runnable) {
+		if (!display.isDisposed()) {
+			display.asyncExec(runnable);
+		}
+	}
+}
@@ -4,6 +4,10 @@ import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferenceDialog;
@@ -22,6 +26,7 @@ import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IEditorInput;
@@ -33,6 +38,7 @@ import org.eclipse.xtext.ui.editor.XtextEditor;
 
 import dev.aleiis.hintforge.Activator;
 import dev.aleiis.hintforge.assistant.ContextAwareCompletionAssistant;
+import dev.aleiis.hintforge.assistant.RequestTimeoutException;
 import dev.aleiis.hintforge.model.DslProfile;
 import dev.aleiis.hintforge.preference.PreferenceManager;
 
@@ -41,16 +47,10 @@ public class CodeCompletionHandler extends AbstractHandler {
 	private ExecutionEvent event;
 	private IPreferenceStore preferenceStore = null;
 
-	private XtextEditor editor = null;
-	private ISourceViewer sourceViewer = null;
-	private IDocument document = null;
-	private IAnnotationModel annotationModel = null;
-
-	private CodeSuggestionAnnotation annotation = null;
-	private String suggestionText = null;
-	private int offset = -1;
-
-	private Shell popupShell = null;
+	/**
+	 * The last suggestion job scheduled. Only touched on the display thread.
+	 */
+	private AssistantJob<String> lastJob = null;
 
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
@@ -67,16 +67,15 @@ public class CodeCompletionHandler extends AbstractHandler {
 			return null;
 		}
 
-		this.editor = (XtextEditor) editorPart;
-		this.sourceViewer = this.editor.getInternalSourceViewer();
-		this.document = sourceViewer.getDocument();
-		this.offset = sourceViewer.getSelectedRange().x;
+		XtextEditor editor = (XtextEditor) editorPart;
+		ISourceViewer sourceViewer = editor.getInternalSourceViewer();
+		int offset = sourceViewer.getSelectedRange().x;
 
-		showInstructionPopup();
+		showInstructionPopup(editor, sourceViewer, offset);
 		return null;
 	}
 
-	private void showInstructionPopup() {
+	private void showInstructionPopup(XtextEditor editor, ISourceViewer sourceViewer, int offset) {
 		StyledText styledText = sourceViewer.getTextWidget();
 		int caretOffset = styledText.getCaretOffset();
 		Point location = styledText.getLocationAtOffset(caretOffset);
@@ -112,10 +111,9 @@ public class CodeCompletionHandler extends AbstractHandler {
 			String userInstruction = instructionText.getText();
 			instructionShell.dispose();
 
-			suggestionText = getLLMSuggestion(userInstruction);
-			if (suggestionText != null && !suggestionText.isEmpty()) {
-				showSuggestionText();
-				showSuggestionPopup();
+			CompletionRequest request = CompletionRequest.start(editor, sourceViewer, offset);
+			if (request != null) {
+				requestLLMSuggestion(request, userInstruction);
 			}
 		});
 
@@ -134,85 +132,6 @@ public class CodeCompletionHandler extends AbstractHandler {
 		instructionText.setFocus();
 	}
 
-	private void showSuggestionText() {
-		this.annotationModel = sourceViewer.getAnnotationModel();
-
-		// Place text
-		try {
-			document.replace(offset, 0, suggestionText);
-		} catch (BadLocationException e) {
-			e.printStackTrace();
-		}
-
-		// Place annotation
-		this.annotation = new CodeSuggestionAnnotation(suggestionText);
-		Position position = new Position(offset, suggestionText.length());
-		annotationModel.addAnnotation(this.annotation, position);
-	}
-
-	private void showSuggestionPopup() {
-		if (popupShell != null && !popupShell.isDisposed()) {
-			rejectSuggestion();
-			return;
-		}
-
-		StyledText styledText = sourceViewer.getTextWidget();
-		Point location = styledText.getLocationAtOffset(offset);
-		Point displayLocation = styledText.toDisplay(location);
-
-		Shell parentShell = editor.getSite().getShell();
-		popupShell = new Shell(parentShell, SWT.ON_TOP | SWT.TOOL | SWT.NO_TRIM);
-		popupShell.setLayout(new GridLayout(2, false));
-
-		// Create buttons: Accept or Reject
-		Button acceptButton = new Button(popupShell, SWT.PUSH);
-		acceptButton.setText("✅ Accept");
-
-		Button cancelButton = new Button(popupShell, SWT.PUSH);
-		cancelButton.setText("❌ Reject");
-
-		popupShell.addShellListener(new ShellAdapter() {
-			@Override
-			public void shellDeactivated(ShellEvent e) {
-				rejectSuggestion();
-				popupShell.dispose();
-			}
-		});
-
-		acceptButton.addListener(SWT.Selection, e -> {
-			acceptSuggestion();
-			popupShell.dispose();
-		});
-
-		cancelButton.addListener(SWT.Selection, e -> {
-			rejectSuggestion();
-			popupShell.dispose();
-		});
-
-		popupShell.pack();
-		popupShell.setLocation(displayLocation.x, displayLocation.y - 45);
-		popupShell.open();
-
-		acceptButton.setFocus();
-		popupShell.setDefaultButton(acceptButton);
-	}
-
-	private void acceptSuggestion() {
-		this.annotationModel.removeAnnotation(this.annotation);
-		StyledText styledText = sourceViewer.getTextWidget();
-		styledText.setCaretOffset(offset + suggestionText.length());
-		styledText.showSelection();
-	}
-
-	private void rejectSuggestion() {
-		try {
-			this.document.replace(offset, suggestionText.length(), "");
-		} catch (BadLocationException e) {
-			e.printStackTrace();
-		}
-		this.annotationModel.removeAnnotation(this.annotation);
-	}
-
 	private boolean isReady() {
 		return preferenceStore.getString("API_KEY").isBlank();
 	}
@@ -234,12 +153,82 @@ public class CodeCompletionHandler extends AbstractHandler {
 		MessageDialog.openError(dialog.getShell(), title, message);
 	}
 
-	private String getLLMSuggestion(String instruction) {
-		String fileExtension = getFileExtension();
+	/**
+	 * Generates the suggestion in a background job, previewing the partial
+	 * fragment in the editor, and shows the accept/reject popup when it is ready.
+	 * If the job is cancelled, the partial fragment is removed.
+	 *
+	 * A job still running for a previous request is cancelled first. The
+	 * suggestion is dropped if the insertion point was deleted from the document
+	 * while it was generated.
+	 */
+	private void requestLLMSuggestion(CompletionRequest request, String instruction) {
+		ContextAwareCompletionAssistant assistant = createAssistant(request.editor);
+		if (assistant == null) {
+			request.dispose();
+			return;
+		}
+
+		if (lastJob != null && lastJob.getState() != Job.NONE) {
+			lastJob.cancel();
+		}
+
+		// Captured on the display thread, the job only sees this snapshot
+		String code = request.document.get();
+		int offset = request.position.getOffset();
+		Shell shell = request.editor.getSite().getShell();
+		Display display = request.sourceViewer.getTextWidget().getDisplay();
+
+		AssistantJob<String> job = new AssistantJob<>("Generating code suggestion", context -> {
+			assistant.setRequestContext(context);
+			return assistant.suggest(instruction, code, offset, partial -> display.asyncExec(() -> {
+				if (!context.isCancelled()) {
+					request.showPartialSuggestion(partial);
+				}
+			}));
+		}, display, suggestion -> {
+			request.clearPartialSuggestion();
+			if (suggestion == null) {
+				request.dispose();
+				MessageDialog.openError(shell, "Error", "Failed reading the DSL files.");
+				return;
+			}
+			if (request.position.isDeleted() || suggestion.isEmpty()) {
+				request.dispose();
+				return;
+			}
+			request.showSuggestionText(suggestion);
+			request.showSuggestionPopup();
+		}, error -> {
+			request.clearPartialSuggestion();
+			request.dispose();
+			if (error instanceof RequestTimeoutException) {
+				MessageDialog.openError(shell, "Error", "No suggestion could be generated within the latency budget.");
+				return;
+			}
+			MessageDialog.openError(shell, "Error", "Failed generating the suggestion.");
+		});
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				if (event.getResult().getSeverity() == IStatus.CANCEL && !display.isDisposed()) {
+					display.asyncExec(() -> {
+						request.clearPartialSuggestion();
+						request.dispose();
+					});
+				}
+			}
+		});
+		lastJob = job;
+		job.schedule();
+	}
+
+	private ContextAwareCompletionAssistant createAssistant(XtextEditor editor) {
+		String fileExtension = getFileExtension(editor);
 		if (fileExtension == null) {
 			MessageDialog.openError(editor.getSite().getShell(), "Invalid Extension", "Could not get the file extension because the editor is not associated with any file.");
 		}
-		
+
 		DslProfile dslProfile = getActiveDslProfile(fileExtension);
 		if (dslProfile == null) {
 			openPreferencePageErrorDialog("Invalid Profile", "No DSL profile found associated to that file extension!");
@@ -252,19 +241,9 @@ public class CodeCompletionHandler extends AbstractHandler {
 			return null;
 		}
 
-		String code = document.get();
-
 		ContextAwareCompletionAssistant assistant = new ContextAwareCompletionAssistant(apiKey, dslProfile, PreferenceManager.getInstance().getModelName());
 		assistant.setEmbeddingStore(PreferenceManager.getInstance().getEmbeddingStore(dslProfile));
-
-		String suggestion = assistant.suggest(instruction, code, offset);
-		if (suggestion == null) {
-			Shell shell = editor.getSite().getShell();
-			MessageDialog.openError(shell, "Error", "Failed reading the DSL files.");
-			return null;
-		}
-
-		return suggestion;
+		return assistant;
 	}
 
 	private DslProfile getActiveDslProfile(String fileExtension) {
@@ -276,13 +255,170 @@ public class CodeCompletionHandler extends AbstractHandler {
 		}
 		return null;
 	}
-	
-	private String getFileExtension() {
+
+	private String getFileExtension(XtextEditor editor) {
 		IEditorInput input = editor.getEditorInput();
         if (input instanceof FileEditorInput) {
         	IFile file = ((FileEditorInput) input).getFile();
-            return file.getFileExtension();	
+            return file.getFileExtension();
         }
         return null;
 	}
+
+	/**
+	 * State of a single suggestion, from the instruction to the accept/reject
+	 * popup. The insertion point is a position added to the document, so it
+	 * follows the edits made while the suggestion is generated. Only touched on
+	 * the display thread.
+	 */
+	private static final class CompletionRequest {
+
+		private final XtextEditor editor;
+		private final ISourceViewer sourceViewer;
+		private final IDocument document;
+		private final Position position;
+
+		private GhostTextPainter partialPainter = null;
+		private IAnnotationModel annotationModel = null;
+		private CodeSuggestionAnnotation annotation = null;
+		private Position annotationPosition = null;
+		private Shell popupShell = null;
+
+		private CompletionRequest(XtextEditor editor, ISourceViewer sourceViewer, Position position) {
+			this.editor = editor;
+			this.sourceViewer = sourceViewer;
+			this.document = sourceViewer.getDocument();
+			this.position = position;
+		}
+
+		/**
+		 * @return The request, or null if the offset is no longer in the document.
+		 */
+		private static CompletionRequest start(XtextEditor editor, ISourceViewer sourceViewer, int offset) {
+			Position position = new Position(offset);
+			try {
+				sourceViewer.getDocument().addPosition(position);
+			} catch (BadLocationException e) {
+				e.printStackTrace();
+				return null;
+			}
+			return new CompletionRequest(editor, sourceViewer, position);
+		}
+
+		/**
+		 * Stops tracking the insertion point.
+		 */
+		private void dispose() {
+			document.removePosition(position);
+		}
+
+		/**
+		 * Previews the fragment streamed so far at the insertion point, drawn over
+		 * the editor without touching the document. It is replaced by the final
+		 * suggestion once the assistant finishes.
+		 */
+		private void showPartialSuggestion(String partial) {
+			if (sourceViewer.getTextWidget() == null || sourceViewer.getTextWidget().isDisposed()) {
+				return;
+			}
+			if (partialPainter == null) {
+				partialPainter = new GhostTextPainter(sourceViewer, position);
+			}
+			partialPainter.setText(partial);
+		}
+
+		private void clearPartialSuggestion() {
+			if (partialPainter != null) {
+				partialPainter.dispose();
+				partialPainter = null;
+			}
+		}
+
+		/**
+		 * Inserts the suggestion at the insertion point. From then on, the
+		 * suggestion is tracked by its annotation.
+		 */
+		private void showSuggestionText(String suggestionText) {
+			this.annotationModel = sourceViewer.getAnnotationModel();
+			int offset = position.getOffset();
+			dispose();
+
+			// Place text
+			try {
+				document.replace(offset, 0, suggestionText);
+			} catch (BadLocationException e) {
+				e.printStackTrace();
+			}
+
+			// Place annotation
+			this.annotation = new CodeSuggestionAnnotation(suggestionText);
+			this.annotationPosition = new Position(offset, suggestionText.length());
+			annotationModel.addAnnotation(this.annotation, annotationPosition);
+		}
+
+		private void showSuggestionPopup() {
+			if (popupShell != null && !popupShell.isDisposed()) {
+				rejectSuggestion();
+				return;
+			}
+
+			StyledText styledText = sourceViewer.getTextWidget();
+			Point location = styledText.getLocationAtOffset(annotationPosition.getOffset());
+			Point displayLocation = styledText.toDisplay(location);
+
+			Shell parentShell = editor.getSite().getShell();
+			popupShell = new Shell(parentShell, SWT.ON_TOP | SWT.TOOL | SWT.NO_TRIM);
+			popupShell.setLayout(new GridLayout(2, false));
+
+			// Create buttons: Accept or Reject
+			Button acceptButton = new Button(popupShell, SWT.PUSH);
+			acceptButton.setText("✅ Accept");
+
+			Button cancelButton = new Button(popupShell, SWT.PUSH);
+			cancelButton.setText("❌ Reject");
+
+			popupShell.addShellListener(new ShellAdapter() {
+				@Override
+				public void shellDeactivated(ShellEvent e) {
+					rejectSuggestion();
+					popupShell.dispose();
+				}
+			});
+
+			acceptButton.addListener(SWT.Selection, e -> {
+				acceptSuggestion();
+				popupShell.dispose();
+			});
+
+			cancelButton.addListener(SWT.Selection, e -> {
+				rejectSuggestion();
+				popupShell.dispose();
+			});
+
+			popupShell.pack();
+			popupShell.setLocation(displayLocation.x, displayLocation.y - 45);
+			popupShell.open();
+
+			acceptButton.setFocus();
+			popupShell.setDefaultButton(acceptButton);
+		}
+
+		private void acceptSuggestion() {
+			this.annotationModel.removeAnnotation(this.annotation);
+			StyledText styledText = sourceViewer.getTextWidget();
+			styledText.setCaretOffset(annotationPosition.getOffset() + annotationPosition.getLength());
+			styledText.showSelection();
+		}
+
+		private void rejectSuggestion() {
+			if (!annotationPosition.isDeleted()) {
+				try {
+					this.document.replace(annotationPosition.getOffset(), annotationPosition.getLength(), "");
+				} catch (BadLocationException e) {
+					e.printStackTrace();
+				}
+			}
+			this.annotationModel.removeAnnotation(this.annotation);
+		}
+	}
 }
@@ -4,6 +4,9 @@ import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferenceDialog;
@@ -76,19 +79,26 @@ public class ExplainCodeHandler extends AbstractHandler {
 			selectedCode = textSel.getText();
 		}
 
-		String explanation = getAssistantExplanation(code, selectedCode);
+		requestAssistantExplanation(code, selectedCode);
+		return null;
+	}
+
+	private void showExplanation(String explanation) {
 		if (explanation == null) {
+			MessageDialog.openError(editor.getSite().getShell(), "Error", "Failed reading the DSL files.");
 			this.view.setStatusMessage("Error while generating the explanation.");
-			return null;
+			return;
 		}
 
 		this.view.showExplanation(explanation);
 		this.view.setStatusMessage("Explanation generated.");
-		
-		return null;
 	}
 
-	private String getAssistantExplanation(String code, String selectedCode) {		
+	/**
+	 * Generates the explanation in a background job and shows it in the view once
+	 * it is ready.
+	 */
+	private void requestAssistantExplanation(String code, String selectedCode) {		
 		String fileExtension = getFileExtension();
 		if (fileExtension == null) {
 			MessageDialog.openError(editor.getSite().getShell(), "Invalid Extension", "Could not get the file extension because the editor is not associated with any file.");
@@ -97,25 +107,34 @@ public class ExplainCodeHandler extends AbstractHandler {
 		DslProfile dslProfile = getActiveDslProfile(fileExtension);
 		if (dslProfile == null) {
 			openPreferencePageErrorDialog("Invalid Profile", "No DSL profile found associated to that file extension!");
-			return null;
+			this.view.setStatusMessage("Error while generating the explanation.");
+			return;
 		}
 
 		String apiKey = PreferenceManager.getInstance().getApiKey();
 		if (apiKey == null || apiKey.isEmpty()) {
 			openPreferencePageErrorDialog("Invalid LLM API Key", "LLM API Key cannot be empty!");
-			return null;
+			this.view.setStatusMessage("Error while generating the explanation.");
+			return;
 		}
 		
 		CodeExplanationAssistant assistant = new CodeExplanationAssistant(apiKey, dslProfile, PreferenceManager.getInstance().getModelName());
 		assistant.setEmbeddingStore(PreferenceManager.getInstance().getEmbeddingStore(dslProfile));
-		String explanation = assistant.explain(code, selectedCode);
-		if (explanation == null) {
-			Shell shell = editor.getSite().getShell();
-			MessageDialog.openError(shell, "Error", "Failed reading the DSL files.");
-			return null;
-		}
-		
-		return explanation;
+
+		AssistantJob<String> job = new AssistantJob<>("Explaining code", context -> {
+			assistant.setRequestContext(context);
+			return assistant.explain(code, selectedCode);
+		}, parentShell.getDisplay(), this::showExplanation,
+				error -> this.view.setStatusMessage("Error while generating the explanation."));
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				if (event.getResult().getSeverity() == IStatus.CANCEL) {
+					parentShell.getDisplay().asyncExec(() -> view.setStatusMessage("Explanation cancelled."));
+				}
+			}
+		});
+		job.schedule();
 	}
 	
 	private DslProfile getActiveDslProfile(String fileExtension) {
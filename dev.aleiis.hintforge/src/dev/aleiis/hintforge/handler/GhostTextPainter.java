@@ -0,0 +1,87 @@
+package dev.aleiis.hintforge.handler;
+
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.Point;
+
+/**
+ * Draws greyed-out text over the editor at a position of the document, without
+ * adding it to the document.
+ *
+ * Used to preview a suggestion while it is streamed: the document, its undo
+ * history and the Xtext reconciler are left alone until the suggestion is
+ * complete.
+ */
+public class GhostTextPainter implements PaintListener {
+
+	private final ITextViewer viewer;
+	private final StyledText styledText;
+	private final Position position;
+	private String text = "";
+
+	/**
+	 * @param viewer   The viewer to draw on.
+	 * @param position Where the text is drawn, in document offsets.
+	 */
+	public GhostTextPainter(ITextViewer viewer, Position position) {
+		this.viewer = viewer;
+		this.styledText = viewer.getTextWidget();
+		this.position = position;
+		styledText.addPaintListener(this);
+	}
+
+	public void setText(String text) {
+		this.text = text;
+		if (!styledText.isDisposed()) {
+			styledText.redraw();
+		}
+	}
+
+	/**
+	 * Stops drawing and removes the text from the editor.
+	 */
+	public void dispose() {
+		if (!styledText.isDisposed()) {
+			styledText.removePaintListener(this);
+			styledText.redraw();
+		}
+	}
+
+	@Override
+	public void paintControl(PaintEvent e) {
+		if (text.isEmpty() || position.isDeleted()) {
+			return;
+		}
+		int widgetOffset = toWidgetOffset(position.getOffset());
+		if (widgetOffset < 0 || widgetOffset > styledText.getCharCount()) {
+			return;
+		}
+
+		Point location = styledText.getLocationAtOffset(widgetOffset);
+		int lineHeight = styledText.getLineHeight(widgetOffset);
+		int lineStartX = styledText.getLeftMargin() - styledText.getHorizontalPixel();
+
+		e.gc.setFont(styledText.getFont());
+		e.gc.setForeground(styledText.getDisplay().getSystemColor(SWT.COLOR_DARK_GRAY));
+		String[] lines = text.split("\\R", -1);
+		for (int i = 0; i < lines.length; i++) {
+			int x = (i == 0) ? location.x : lineStartX;
+			e.gc.drawText(lines[i], x, location.y + i * lineHeight, SWT.DRAW_TRANSPARENT | SWT.DRAW_TAB);
+		}
+	}
+
+	/**
+	 * @return The offset in the widget, or -1 if it is hidden (e.g. folded).
+	 */
+	private int toWidgetOffset(int modelOffset) {
+		if (viewer instanceof ITextViewerExtension5 extension) {
+			return extension.modelOffset2WidgetOffset(modelOffset);
+		}
+		return modelOffset - viewer.getVisibleRegion().getOffset();
+	}
+}
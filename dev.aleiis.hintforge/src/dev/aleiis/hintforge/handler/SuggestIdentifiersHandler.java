@@ -6,11 +6,16 @@ import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferenceDialog;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.viewers.ArrayContentProvider;
 import org.eclipse.jface.viewers.LabelProvider;
@@ -35,11 +40,11 @@ public class SuggestIdentifiersHandler extends AbstractHandler {
 	private IPreferenceStore preferenceStore = null;
 
 	private Shell parentShell = null;
-	private XtextEditor editor = null;
-	private ISourceViewer sourceViewer = null;
-	private IDocument document = null;
 
-	private int offset = -1;
+	/**
+	 * The last suggestion job scheduled. Only touched on the display thread.
+	 */
+	private AssistantJob<List<String>> lastJob = null;
 
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
@@ -57,17 +62,33 @@ public class SuggestIdentifiersHandler extends AbstractHandler {
 			return null;
 		}
 
-		this.editor = (XtextEditor) editorPart;
-		this.sourceViewer = this.editor.getInternalSourceViewer();
-		this.document = sourceViewer.getDocument();
-		this.offset = sourceViewer.getSelectedRange().x;
+		XtextEditor editor = (XtextEditor) editorPart;
+		ISourceViewer sourceViewer = editor.getInternalSourceViewer();
 
-		List<String> suggestions = getIdentifierSuggestions();
-		if (suggestions == null || suggestions.isEmpty()) {
-			MessageDialog.openError(parentShell, "Identifier Suggestion Error", "Suggestions list is empty.");
+		// Tracks the insertion point while the identifiers are suggested
+		Position position = new Position(sourceViewer.getSelectedRange().x);
+		try {
+			sourceViewer.getDocument().addPosition(position);
+		} catch (BadLocationException e) {
+			e.printStackTrace();
 			return null;
 		}
-		
+
+		requestIdentifierSuggestions(editor, sourceViewer, position);
+		return null;
+	}
+
+	private void showSuggestionsDialog(Shell parentShell, ISourceViewer sourceViewer, Position position,
+			List<String> suggestions) {
+		if (suggestions == null) {
+			MessageDialog.openError(parentShell, "Error", "Failed reading the DSL files.");
+			return;
+		}
+		if (suggestions.isEmpty()) {
+			MessageDialog.openError(parentShell, "Identifier Suggestion Error", "Suggestions list is empty.");
+			return;
+		}
+
 		ListDialog dialog = new ListDialog(parentShell);
 		dialog.setContentProvider(ArrayContentProvider.getInstance());
 		dialog.setLabelProvider(new LabelProvider());
@@ -81,16 +102,19 @@ public class SuggestIdentifiersHandler extends AbstractHandler {
 		    Object[] result = dialog.getResult();
 		    if (result != null && result.length == 1) {
 		        String identifier = (String) result[0];
-		        insertIdentifier(identifier);
+		        insertIdentifier(parentShell, sourceViewer, position, identifier);
 		    }
 		}
-		
-		return null;
 	}
 
-	private void insertIdentifier(String identifier) {	
+	private void insertIdentifier(Shell parentShell, ISourceViewer sourceViewer, Position position,
+			String identifier) {
+		if (position.isDeleted()) {
+			return;
+		}
 		try {
-			document.replace(offset, 0, identifier);
+			int offset = position.getOffset();
+			sourceViewer.getDocument().replace(offset, 0, identifier);
 			StyledText styledText = sourceViewer.getTextWidget();
 			styledText.setCaretOffset(offset + identifier.length());
 			styledText.showSelection();
@@ -105,7 +129,7 @@ public class SuggestIdentifiersHandler extends AbstractHandler {
 
 	}
 	
-	private String getFileExtension() {
+	private String getFileExtension(XtextEditor editor) {
 		IEditorInput input = editor.getEditorInput();
         if (input instanceof FileEditorInput) {
         	IFile file = ((FileEditorInput) input).getFile();
@@ -129,36 +153,67 @@ public class SuggestIdentifiersHandler extends AbstractHandler {
 		MessageDialog.openError(dialog.getShell(), title, message);
 	}
 
-	private List<String> getIdentifierSuggestions() {
-		String fileExtension = getFileExtension();
+	/**
+	 * Suggests the identifiers in a background job and shows them once they are
+	 * ready. A job still running for a previous request is cancelled first. The
+	 * suggestions are dropped if the insertion point was deleted from the
+	 * document while they were generated.
+	 */
+	private void requestIdentifierSuggestions(XtextEditor editor, ISourceViewer sourceViewer, Position position) {
+		IDocument document = sourceViewer.getDocument();
+		String fileExtension = getFileExtension(editor);
 		if (fileExtension == null) {
 			MessageDialog.openError(editor.getSite().getShell(), "Invalid Extension", "Could not get the file extension because the editor is not associated with any file.");
 		}
 		
 		DslProfile dslProfile = getActiveDslProfile(fileExtension);
 		if (dslProfile == null) {
+			document.removePosition(position);
 			openPreferencePageErrorDialog("Invalid Profile", "No DSL profile found associated to that file extension!");
-			return null;
+			return;
 		}
 
 		String apiKey = PreferenceManager.getInstance().getApiKey();
 		if (apiKey == null || apiKey.isEmpty()) {
+			document.removePosition(position);
 			openPreferencePageErrorDialog("Invalid LLM API Key", "LLM API Key cannot be empty!");
-			return null;
+			return;
 		}
-		
+
+		if (lastJob != null && lastJob.getState() != Job.NONE) {
+			lastJob.cancel();
+		}
+
+		// Captured on the display thread, the job only sees this snapshot
 		String code = document.get();
+		int offset = position.getOffset();
+		Shell parentShell = this.parentShell;
 		
 		IdentifierSuggestionAssistant assistant = new IdentifierSuggestionAssistant(apiKey, dslProfile, PreferenceManager.getInstance().getModelName());
 		assistant.setEmbeddingStore(PreferenceManager.getInstance().getEmbeddingStore(dslProfile));
-		List<String> identifiers = assistant.suggest(code, offset);
-		if (identifiers == null) {
-			Shell shell = editor.getSite().getShell();
-			MessageDialog.openError(shell, "Error", "Failed reading the DSL files.");
-			return null;
-		}
-		
-		return identifiers;
+
+		AssistantJob<List<String>> job = new AssistantJob<>("Suggesting identifiers", context -> {
+			assistant.setRequestContext(context);
+			return assistant.suggest(code, offset);
+		}, parentShell.getDisplay(), suggestions -> {
+			if (!position.isDeleted()) {
+				showSuggestionsDialog(parentShell, sourceViewer, position, suggestions);
+			}
+			document.removePosition(position);
+		}, error -> {
+			document.removePosition(position);
+			MessageDialog.openError(parentShell, "Error", "Failed suggesting identifiers.");
+		});
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				if (event.getResult().getSeverity() == IStatus.CANCEL && !parentShell.getDisplay().isDisposed()) {
+					parentShell.getDisplay().asyncExec(() -> document.removePosition(position));
+				}
+			}
+		});
+		lastJob = job;
+		job.schedule();
 	}
 	
 	private boolean isReady() {
@@ -0,0 +1,102 @@
+package dev.aleiis.hintforge.handler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import dev.aleiis.hintforge.assistant.DegradationLevel;
+import dev.aleiis.hintforge.assistant.EmbeddingCache;
+import dev.aleiis.hintforge.assistant.LatencyTracker;
+import dev.aleiis.hintforge.assistant.ResponseCache;
+import dev.aleiis.hintforge.assistant.SingleFlight;
+import dev.aleiis.hintforge.assistant.Telemetry;
+
+/**
+ * Shows how long each stage of the recent assistant requests took, and lets
+ * the user export the recorded spans as JSON.
+ */
+public class TelemetryHandler extends AbstractHandler {
+
+	private static final int EXPORT_BUTTON = 1;
+	private static final int CLEAR_BUTTON = 2;
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		Shell shell = HandlerUtil.getActiveShell(event);
+		Telemetry telemetry = Telemetry.getInstance();
+
+		MessageDialog dialog = new MessageDialog(shell, "HintForge Telemetry", null, buildSummary(telemetry),
+				MessageDialog.INFORMATION, 0, "Close", "Export JSON...", "Clear");
+		int button = dialog.open();
+		if (button == EXPORT_BUTTON) {
+			export(shell, telemetry);
+		} else if (button == CLEAR_BUTTON) {
+			telemetry.clear();
+		}
+		return null;
+	}
+
+	private String buildSummary(Telemetry telemetry) {
+		List<Telemetry.Span> spans = telemetry.getSpans();
+		EmbeddingCache embeddingCache = EmbeddingCache.getInstance();
+		String savings = String.format(
+				"Calls saved: %d response cache hits, %d identical requests coalesced, "
+						+ "%d query embeddings reused (%.0f%% hit rate).",
+				ResponseCache.getInstance().getHits(), SingleFlight.getInstance().getSavedCalls(),
+				embeddingCache.getHits(), embeddingCache.getHitRate() * 100)
+				+ "\n" + buildLevelSummary();
+		if (spans.isEmpty()) {
+			return "No assistant request has been recorded yet.\n\n" + savings;
+		}
+
+		long requests = spans.stream().mapToLong(Telemetry.Span::getRequestId).distinct().count();
+		StringBuilder summary = new StringBuilder(
+				String.format("%d spans from %d requests (last %d kept).\n\n", spans.size(), requests,
+						Telemetry.CAPACITY));
+		for (Map.Entry<Telemetry.Stage, Telemetry.StageSummary> entry : telemetry.summarize().entrySet()) {
+			Telemetry.StageSummary stage = entry.getValue();
+			summary.append(String.format("%s: %d spans, avg %.1f ms, max %.1f ms\n", entry.getKey(),
+					stage.getCount(), stage.getAverageMillis(), stage.getMaxMillis()));
+		}
+		summary.append("\n").append(savings);
+		return summary.toString();
+	}
+
+	private String buildLevelSummary() {
+		List<String> levels = new ArrayList<>();
+		for (DegradationLevel level : DegradationLevel.values()) {
+			levels.add(String.format("%d %s", LatencyTracker.getInstance().getLevelCount(level), level));
+		}
+		return "Prompts by degradation level: " + String.join(", ", levels) + ".";
+	}
+
+	private void export(Shell shell, Telemetry telemetry) {
+		FileDialog fileDialog = new FileDialog(shell, SWT.SAVE);
+		fileDialog.setFilterExtensions(new String[] { "*.json" });
+		fileDialog.setFileName("hintforge-telemetry.json");
+		fileDialog.setOverwrite(true);
+		String fileName = fileDialog.open();
+		if (fileName == null) {
+			return;
+		}
+
+		try {
+			Files.writeString(Path.of(fileName), telemetry.toJson());
+		} catch (IOException e) {
+			e.printStackTrace();
+			MessageDialog.openError(shell, "HintForge Telemetry", "The telemetry could not be exported.");
+		}
+	}
+}
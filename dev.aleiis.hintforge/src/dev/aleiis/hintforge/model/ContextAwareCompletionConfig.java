@@ -2,6 +2,12 @@ package dev.aleiis.hintforge.model;
 
 public class ContextAwareCompletionConfig {
 
+	/**
+	 * The lowest similarity, as a percentage, a reused suggestion may have. Below
+	 * it, requests with different instructions reuse each other's suggestions.
+	 */
+	public static final int MIN_SEMANTIC_CACHE_SIMILARITY = 90;
+
 	public static final String DEFAULT_FEW_SHOT_PROMPT = """
 			MARKED CODE:
 			token a = Foo;
@@ -26,17 +32,29 @@ public class ContextAwareCompletionConfig {
 	private String fewShotPrompt;
 	private int maxFixAttempts;
 	private int maxGenerationAttempts;
+	private int maxSpeculativeFanOut;
+	private int latencyBudgetMillis;
+	private boolean adaptiveDegradation;
+	private int semanticCacheSimilarity;
 
 	public ContextAwareCompletionConfig() {
 		this.fewShotPrompt = DEFAULT_FEW_SHOT_PROMPT;
 		this.maxFixAttempts = 2;
 		this.maxGenerationAttempts = 1;
+		this.maxSpeculativeFanOut = 1;
+		this.latencyBudgetMillis = 0;
+		this.adaptiveDegradation = false;
+		this.semanticCacheSimilarity = 0;
 	}
 
 	public ContextAwareCompletionConfig(String fewShotPrompt, int maxFixAttempts, int maxGenerationAttempts) {
 		setFewShotPrompt(fewShotPrompt);
 		setMaxFixAttempts(maxFixAttempts);
 		setMaxGenerationAttempts(maxGenerationAttempts);
+		setMaxSpeculativeFanOut(1);
+		setLatencyBudgetMillis(0);
+		setAdaptiveDegradation(false);
+		setSemanticCacheSimilarity(0);
 	}
 
 	public String getFewShotPrompt() {
@@ -77,4 +95,84 @@ public class ContextAwareCompletionConfig {
 		}
 		this.maxGenerationAttempts = maxGenerationAttempts;
 	}
+
+	public int getMaxSpeculativeFanOut() {
+		return maxSpeculativeFanOut;
+	}
+
+	/**
+	 * Sets how many generation attempts may run at the same time. With a value of
+	 * 1 the attempts run one after another.
+	 * 
+	 * @param maxSpeculativeFanOut maximum number of concurrent generation attempts
+	 */
+	public void setMaxSpeculativeFanOut(int maxSpeculativeFanOut) {
+		if (maxSpeculativeFanOut < 1) {
+			throw new IllegalArgumentException("maxSpeculativeFanOut must be at least 1");
+		}
+		this.maxSpeculativeFanOut = maxSpeculativeFanOut;
+	}
+
+	public int getLatencyBudgetMillis() {
+		return latencyBudgetMillis;
+	}
+
+	/**
+	 * Sets the time a code completion request may take. When it runs out, the
+	 * best suggestion found so far is returned. A value of 0 sets no limit.
+	 * 
+	 * @param latencyBudgetMillis the latency budget in milliseconds, or 0 for no
+	 *                            limit
+	 */
+	public void setLatencyBudgetMillis(int latencyBudgetMillis) {
+		if (latencyBudgetMillis < 0) {
+			throw new IllegalArgumentException("latencyBudgetMillis cannot be a negative value");
+		}
+		this.latencyBudgetMillis = latencyBudgetMillis;
+	}
+
+	public boolean isAdaptiveDegradation() {
+		return adaptiveDegradation;
+	}
+
+	/**
+	 * Enables dropping parts of the prompt (retrieved documentation, extra
+	 * examples, distant code) when the recent latency of the model projects that
+	 * the request would miss its latency budget. Has no effect without a latency
+	 * budget.
+	 * 
+	 * @param adaptiveDegradation whether the prompt may be degraded
+	 */
+	public void setAdaptiveDegradation(boolean adaptiveDegradation) {
+		this.adaptiveDegradation = adaptiveDegradation;
+	}
+
+	/**
+	 * @return the minimum similarity as a percentage, or 0 if it is disabled.
+	 *         Profiles saved with a lower similarity get the minimum one.
+	 */
+	public int getSemanticCacheSimilarity() {
+		if (semanticCacheSimilarity == 0) {
+			return 0;
+		}
+		return Math.max(semanticCacheSimilarity, MIN_SEMANTIC_CACHE_SIMILARITY);
+	}
+
+	/**
+	 * Sets how similar a request must be to a previous one to reuse its
+	 * suggestion, after verifying it against the current code. A value of 0
+	 * disables the reuse of suggestions of similar requests.
+	 * 
+	 * @param semanticCacheSimilarity the minimum similarity as a percentage, from
+	 *                                {@link #MIN_SEMANTIC_CACHE_SIMILARITY} to
+	 *                                100, or 0 to disable it
+	 */
+	public void setSemanticCacheSimilarity(int semanticCacheSimilarity) {
+		if (semanticCacheSimilarity != 0 && (semanticCacheSimilarity < MIN_SEMANTIC_CACHE_SIMILARITY
+				|| semanticCacheSimilarity > 100)) {
+			throw new IllegalArgumentException(String.format(
+					"semanticCacheSimilarity must be 0 or between %d and 100", MIN_SEMANTIC_CACHE_SIMILARITY));
+		}
+		this.semanticCacheSimilarity = semanticCacheSimilarity;
+	}
 }
@@ -12,6 +12,8 @@ public class DslProfile {
     private ExternalFile xtextFile;
     private String fileExtension;
     private String standaloneSetupClass = null;
+    private int grammarTokenBudget = 0;
+    private int contextTokenBudget = 0;
     private List<ExternalFile> scriptExamples = new ArrayList<>();
     private EmbeddingManager embeddingManager = new EmbeddingManager();
     private ContextAwareCompletionConfig codeCompletionConfig = new ContextAwareCompletionConfig();
@@ -77,6 +79,42 @@ public class DslProfile {
         this.standaloneSetupClass = standaloneSetupClass;
     }
 
+    public int getGrammarTokenBudget() {
+        return grammarTokenBudget;
+    }
+
+    /**
+     * Sets the maximum number of tokens of the grammar sent in the prompts. When
+     * the grammar is bigger, only the rules relevant at the cursor are sent. A
+     * value of 0 always sends the whole grammar.
+     *
+     * @param grammarTokenBudget the token budget, or 0 to disable grammar slicing
+     */
+    public void setGrammarTokenBudget(int grammarTokenBudget) {
+        if (grammarTokenBudget < 0) {
+            throw new IllegalArgumentException("The grammar token budget cannot be a negative value");
+        }
+        this.grammarTokenBudget = grammarTokenBudget;
+    }
+
+    public int getContextTokenBudget() {
+        return contextTokenBudget;
+    }
+
+    /**
+     * Sets the maximum number of tokens of the edited code sent in the prompts.
+     * When the code is bigger, only the elements around the cursor are sent. A
+     * value of 0 always sends the whole document.
+     *
+     * @param contextTokenBudget the token budget, or 0 to disable the context window
+     */
+    public void setContextTokenBudget(int contextTokenBudget) {
+        if (contextTokenBudget < 0) {
+            throw new IllegalArgumentException("The context token budget cannot be a negative value");
+        }
+        this.contextTokenBudget = contextTokenBudget;
+    }
+
     public List<ExternalFile> getScriptExamples() {
         return scriptExamples;
     }
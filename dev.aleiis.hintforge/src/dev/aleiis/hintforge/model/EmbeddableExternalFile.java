@@ -1,10 +1,12 @@
 package dev.aleiis.hintforge.model;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
+import dev.aleiis.hintforge.assistant.Telemetry;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
@@ -32,13 +34,48 @@ public class EmbeddableExternalFile extends ExternalFile {
 		return !this.embeddingIds.isEmpty();
 	}
 
+	/**
+	 * Reads the content of the file from disk. Documentation is only read to
+	 * embed it, so it is not kept in the {@link FileContentCache}.
+	 */
+	@Override
+	public String readContent(Path homeFolder) throws IOException {
+		return Files.readString(resolvePath(homeFolder));
+	}
+
 	public List<String> calculateAndStoreEmbedding(Path homeFolder, EmbeddingStore<TextSegment> embeddingStore,
 			EmbeddingModel embeddingModel) throws IOException {
-		Document document = Document.from(this.readContent(homeFolder));
+		String content = this.readContent(homeFolder);
+		List<TextSegment> segments = split(content);
+		List<Embedding> embeddings;
+		try (Telemetry.Span span = Telemetry.getInstance().start(Telemetry.Stage.INGESTION, null)
+				.detail(String.format("%s (%d segments)", getSourcePath(), segments.size()))
+				.payloadChars(content.length())) {
+			embeddings = embeddingModel.embedAll(segments).content();
+		}
+		return storeEmbeddings(embeddingStore, embeddings, segments);
+	}
+
+	/**
+	 * Splits the content of the file into the segments that are embedded.
+	 */
+	public List<TextSegment> split(Path homeFolder) throws IOException {
+		return split(this.readContent(homeFolder));
+	}
+
+	private static List<TextSegment> split(String content) {
 		DocumentSplitter splitter = DocumentSplitters.recursive(1000, 200);
-		List<TextSegment> segments = splitter.split(document);
-		List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
-		List<String> ids = embeddingStore.addAll(embeddings, segments);		
+		return splitter.split(Document.from(content));
+	}
+
+	/**
+	 * Stores the embeddings of the segments of the file.
+	 * 
+	 * @return The ids of the stored embeddings.
+	 */
+	public List<String> storeEmbeddings(EmbeddingStore<TextSegment> embeddingStore, List<Embedding> embeddings,
+			List<TextSegment> segments) {
+		List<String> ids = embeddingStore.addAll(embeddings, segments);
 		this.embeddingIds = ids;
 		return ids;
 	}
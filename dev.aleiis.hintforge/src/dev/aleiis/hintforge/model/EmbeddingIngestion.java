@@ -0,0 +1,182 @@
+package dev.aleiis.hintforge.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import dev.aleiis.hintforge.assistant.Telemetry;
+import dev.aleiis.hintforge.utils.TokenCounter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+/**
+ * Ingests many files at once: packs the segments of every file into batches
+ * within the input limits of the embedding provider, counting tokens with the
+ * encoding of the embedding model, embeds up to
+ * {@link #MAX_CONCURRENT_BATCHES} batches at the same time, and stores the
+ * embeddings of each file in the order of the files.
+ *
+ * Batches rejected because of the rate limit (HTTP 429) are retried with
+ * exponential backoff.
+ */
+class EmbeddingIngestion {
+
+	static final int MAX_BATCH_SEGMENTS = 512;
+	static final int MAX_BATCH_TOKENS = 100_000;
+	static final int MAX_CONCURRENT_BATCHES = 4;
+	static final int MAX_RATE_LIMIT_RETRIES = 5;
+	static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+	private final EmbeddingStore<TextSegment> embeddingStore;
+	private final EmbeddingModel embeddingModel;
+	private final String modelName;
+
+	EmbeddingIngestion(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+			String modelName) {
+		this.embeddingStore = embeddingStore;
+		this.embeddingModel = embeddingModel;
+		this.modelName = modelName;
+	}
+
+	/**
+	 * Embeds and stores the files. If a batch fails, the files stored before it
+	 * stay stored and the exception is thrown.
+	 *
+	 * @param files      The files to ingest.
+	 * @param homeFolder The home folder the files are read from.
+	 * @param stored     Receives each file once its embeddings are in the store,
+	 *                   in the order of the files.
+	 */
+	void ingest(List<EmbeddableExternalFile> files, Path homeFolder, Consumer<EmbeddableExternalFile> stored)
+			throws IOException {
+		List<TextSegment> segments = new ArrayList<>();
+		int[] fileEnds = new int[files.size()];
+		for (int i = 0; i < files.size(); i++) {
+			segments.addAll(files.get(i).split(homeFolder));
+			fileEnds[i] = segments.size();
+		}
+
+		List<int[]> batches = pack(segments, modelName);
+		Semaphore permits = new Semaphore(MAX_CONCURRENT_BATCHES);
+		List<Future<List<Embedding>>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int[] batch : batches) {
+				List<TextSegment> batchSegments = segments.subList(batch[0], batch[1]);
+				futures.add(executor.submit(() -> {
+					permits.acquire();
+					try {
+						return embed(batchSegments);
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+
+			// Stores each file as soon as every batch with its segments is done
+			List<Embedding> embeddings = new ArrayList<>(segments.size());
+			try {
+				int nextFile = storeReady(files, fileEnds, segments, embeddings, 0, stored);
+				for (Future<List<Embedding>> future : futures) {
+					embeddings.addAll(future.get());
+					nextFile = storeReady(files, fileEnds, segments, embeddings, nextFile, stored);
+				}
+			} finally {
+				// Stops the pending batches if one failed
+				futures.forEach(future -> future.cancel(true));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while ingesting embeddings", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new RuntimeException("Failed ingesting embeddings", e.getCause());
+		}
+	}
+
+	/**
+	 * Stores the files, from the given one on, whose segments are all embedded.
+	 *
+	 * @return The index of the first file not stored.
+	 */
+	private int storeReady(List<EmbeddableExternalFile> files, int[] fileEnds, List<TextSegment> segments,
+			List<Embedding> embeddings, int nextFile, Consumer<EmbeddableExternalFile> stored) {
+		while (nextFile < files.size() && fileEnds[nextFile] <= embeddings.size()) {
+			int start = (nextFile == 0) ? 0 : fileEnds[nextFile - 1];
+			int end = fileEnds[nextFile];
+			EmbeddableExternalFile file = files.get(nextFile);
+			file.storeEmbeddings(embeddingStore, List.copyOf(embeddings.subList(start, end)),
+					List.copyOf(segments.subList(start, end)));
+			stored.accept(file);
+			nextFile++;
+		}
+		return nextFile;
+	}
+
+	/**
+	 * Splits the segments into consecutive batches of at most
+	 * {@link #MAX_BATCH_SEGMENTS} segments and {@link #MAX_BATCH_TOKENS} tokens
+	 * of the given embedding model.
+	 *
+	 * @return The start (inclusive) and end (exclusive) of each batch.
+	 */
+	static List<int[]> pack(List<TextSegment> segments, String modelName) {
+		List<int[]> batches = new ArrayList<>();
+		int start = 0;
+		int tokens = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			int segmentTokens = TokenCounter.count(segments.get(i).text(), modelName);
+			if (i > start && (i - start >= MAX_BATCH_SEGMENTS || tokens + segmentTokens > MAX_BATCH_TOKENS)) {
+				batches.add(new int[] { start, i });
+				start = i;
+				tokens = 0;
+			}
+			tokens += segmentTokens;
+		}
+		if (start < segments.size()) {
+			batches.add(new int[] { start, segments.size() });
+		}
+		return batches;
+	}
+
+	private List<Embedding> embed(List<TextSegment> batch) throws InterruptedException {
+		long backoffMillis = INITIAL_BACKOFF_MILLIS;
+		for (int attempt = 1;; attempt++) {
+			try (Telemetry.Span span = Telemetry.getInstance().start(Telemetry.Stage.INGESTION, null)
+					.detail(String.format("batch of %d segments", batch.size())).attempt(attempt)
+					.payloadChars(batch.stream().mapToInt(segment -> segment.text().length()).sum())) {
+				return embeddingModel.embedAll(batch).content();
+			} catch (RuntimeException e) {
+				if (attempt > MAX_RATE_LIMIT_RETRIES || !isRateLimited(e)) {
+					throw e;
+				}
+				Thread.sleep(backoffMillis);
+				backoffMillis *= 2;
+			}
+		}
+	}
+
+	private static boolean isRateLimited(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof RateLimitException) {
+				return true;
+			}
+			if (cause instanceof HttpException http && http.statusCode() == 429) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
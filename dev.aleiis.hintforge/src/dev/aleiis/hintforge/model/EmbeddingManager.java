@@ -5,9 +5,9 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
+import dev.aleiis.hintforge.assistant.ModelProviders;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 
 public class EmbeddingManager {
@@ -58,6 +58,17 @@ public class EmbeddingManager {
 	}
 	
 	public void sync(EmbeddingStore<TextSegment> embeddingStore, Path homeFolder, String apiKey) throws IOException {
+		sync(embeddingStore, homeFolder,
+				ModelProviders.getDefault(homeFolder).embeddingModel(apiKey, EMBEDDING_MODEL_NAME));
+	}
+
+	/**
+	 * Removes the embeddings of the deleted files from the store and ingests the
+	 * pending files with the given model, in concurrent batches. If ingestion
+	 * fails, the files ingested before the failure are no longer pending.
+	 */
+	public void sync(EmbeddingStore<TextSegment> embeddingStore, Path homeFolder, EmbeddingModel embeddingModel)
+			throws IOException {
 		
 		// Delete embeddings from removed files
 		List<String> actualIds = embeddedFiles.stream().flatMap(file -> file.getEmbeddingIds().stream()).toList();
@@ -69,15 +80,11 @@ public class EmbeddingManager {
 		}
 
 		// Ingest new files
-		EmbeddingModel embeddingModel = OpenAiEmbeddingModel.builder().apiKey(apiKey).modelName(EMBEDDING_MODEL_NAME)
-				.build();
-
-		for (EmbeddableExternalFile file : pendingEmbeddingFiles) {
-			List<String> ids = file.calculateAndStoreEmbedding(homeFolder, embeddingStore, embeddingModel);
-			this.embeddingIds.addAll(ids);
-		}
-		
-		embeddedFiles.addAll(pendingEmbeddingFiles);
-		pendingEmbeddingFiles.clear();
+		List<EmbeddableExternalFile> files = List.copyOf(pendingEmbeddingFiles);
+		new EmbeddingIngestion(embeddingStore, embeddingModel, EMBEDDING_MODEL_NAME).ingest(files, homeFolder, file -> {
+			this.embeddingIds.addAll(file.getEmbeddingIds());
+			embeddedFiles.add(file);
+			pendingEmbeddingFiles.remove(file);
+		});
 	}	
 }
@@ -1,7 +1,6 @@
 package dev.aleiis.hintforge.model;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 
@@ -58,6 +57,7 @@ public class ExternalFile {
      * Reads the content of the file.
      * 
      * If relativePath is defined, the file is read relative to homeFolder, if not, the file is read from source.
+     * The content is served from the {@link FileContentCache} while the file does not change.
      * 
      * @param homeFolder base folder for relative paths
      * 
@@ -65,13 +65,18 @@ public class ExternalFile {
      * @throws IOException if an error occurs while reading the file
      */
     public String readContent(Path homeFolder) throws IOException {
-        Path readPath;
+        return FileContentCache.getInstance().read(resolvePath(homeFolder));
+    }
+
+    /**
+     * @param homeFolder base folder for relative paths
+     * 
+     * @return the path the file is read from
+     */
+    protected Path resolvePath(Path homeFolder) {
         if (relativePath != null && !relativePath.isBlank()) {
-            readPath = homeFolder.resolve(relativePath);
-        } else {
-            readPath = Path.of(sourcePath);
+            return homeFolder.resolve(relativePath);
         }
-
-        return Files.readString(readPath);
+        return Path.of(sourcePath);
     }
 }
@@ -0,0 +1,118 @@
+package dev.aleiis.hintforge.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the content of the profile files read for every prompt (grammars and
+ * example scripts) so they are read from disk once per change instead of once
+ * per LLM call.
+ *
+ * Entries are keyed by the resolved path of the file and validated against its
+ * modification time and size on every read. They are kept in least recently
+ * used order, up to {@link #MAX_MEMORY_CHARS} characters.
+ */
+public class FileContentCache {
+
+	public static final long MAX_MEMORY_CHARS = 8_000_000;
+
+	private static FileContentCache instance;
+
+	private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryChars = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private FileContentCache() {
+	}
+
+	public static synchronized FileContentCache getInstance() {
+		if (instance == null) {
+			instance = new FileContentCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Reads the content of a file, reusing the cached content if the file has not
+	 * changed since it was last read.
+	 *
+	 * @param path the file to read
+	 * @return the content of the file
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public String read(Path path) throws IOException {
+		Path key = path.toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (entry != null && entry.lastModifiedTime.equals(attributes.lastModifiedTime())
+				&& entry.size == attributes.size()) {
+			hits.incrementAndGet();
+			return entry.content;
+		}
+
+		misses.incrementAndGet();
+		String content = Files.readString(key);
+		put(key, new Entry(content, attributes.lastModifiedTime(), attributes.size()));
+		return content;
+	}
+
+	public synchronized void invalidate(Path path) {
+		Entry removed = entries.remove(path.toAbsolutePath().normalize());
+		if (removed != null) {
+			memoryChars -= removed.content.length();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		memoryChars = 0;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private synchronized void put(Path key, Entry entry) {
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			memoryChars -= previous.content.length();
+		}
+		memoryChars += entry.content.length();
+
+		Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+		while (memoryChars > MAX_MEMORY_CHARS && eldest.hasNext()) {
+			memoryChars -= eldest.next().getValue().content.length();
+			eldest.remove();
+		}
+	}
+
+	private static final class Entry {
+
+		private final String content;
+		private final FileTime lastModifiedTime;
+		private final long size;
+
+		private Entry(String content, FileTime lastModifiedTime, long size) {
+			this.content = content;
+			this.lastModifiedTime = lastModifiedTime;
+			this.size = size;
+		}
+	}
+}
@@ -57,10 +57,17 @@ public class DslProfileDialog extends Dialog {
 	private Text codeCompletionFewShotText;
 	private Spinner codeCompletionFixAttemptsSpinner;
 	private Spinner codeCompletionGenerationAttemptsSpinner;
+	private Spinner codeCompletionFanOutSpinner;
+	private Spinner codeCompletionLatencyBudgetSpinner;
+	private Button codeCompletionAdaptiveDegradationCheck;
+	private Spinner codeCompletionSemanticCacheSpinner;
 
 	private Text identifierSuggestionFewShotText;
 	private Spinner identifierSuggestionGenerationAttemptsSpinner;
 
+	private Spinner grammarTokenBudgetSpinner;
+	private Spinner contextTokenBudgetSpinner;
+
 	public DslProfileDialog(Shell parentShell, DslProfile original, List<DslProfile> existingProfiles) {
 		super(parentShell);
 		this.original = original;
@@ -321,6 +328,49 @@ public class DslProfileDialog extends Dialog {
 		codeCompletionGenerationAttemptsSpinner.setMinimum(1);
 		codeCompletionGenerationAttemptsSpinner.setMaximum(100);
 
+		Label fanOutLabel = new Label(codeCompletionGroup, SWT.NONE);
+		fanOutLabel.setText("Speculative Fan-out:");
+		fanOutLabel.setToolTipText(
+				"Maximum number of generation attempts launched at the same time. Use 1 to run them one after another.");
+
+		codeCompletionFanOutSpinner = new Spinner(codeCompletionGroup, SWT.BORDER);
+		codeCompletionFanOutSpinner.setMinimum(1);
+		codeCompletionFanOutSpinner.setMaximum(10);
+
+		Label latencyBudgetLabel = new Label(codeCompletionGroup, SWT.NONE);
+		latencyBudgetLabel.setText("Latency Budget (ms):");
+		latencyBudgetLabel.setToolTipText(
+				"Maximum time a suggestion may take. When it runs out, the best suggestion found so far is shown. Use 0 for no limit.");
+
+		codeCompletionLatencyBudgetSpinner = new Spinner(codeCompletionGroup, SWT.BORDER);
+		codeCompletionLatencyBudgetSpinner.setMinimum(0);
+		codeCompletionLatencyBudgetSpinner.setMaximum(600000);
+		codeCompletionLatencyBudgetSpinner.setIncrement(1000);
+
+		codeCompletionAdaptiveDegradationCheck = new Button(codeCompletionGroup, SWT.CHECK);
+		codeCompletionAdaptiveDegradationCheck.setText("Shrink the prompt to meet the latency budget");
+		codeCompletionAdaptiveDegradationCheck.setToolTipText(
+				"When the model has been slow lately, drop the retrieved documentation, then the extra examples, then the distant code.");
+		codeCompletionAdaptiveDegradationCheck.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+		Label semanticCacheLabel = new Label(codeCompletionGroup, SWT.NONE);
+		semanticCacheLabel.setText("Reuse Similarity (%):");
+		semanticCacheLabel.setToolTipText(
+				"Reuse the suggestion of a previous request at least this similar, if it is still valid. Use 0 to disable it, "
+						+ "otherwise at least " + ContextAwareCompletionConfig.MIN_SEMANTIC_CACHE_SIMILARITY + ".");
+
+		codeCompletionSemanticCacheSpinner = new Spinner(codeCompletionGroup, SWT.BORDER);
+		codeCompletionSemanticCacheSpinner.setMinimum(0);
+		codeCompletionSemanticCacheSpinner.setMaximum(100);
+		// Steps straight between 0 (disabled) and the minimum similarity
+		codeCompletionSemanticCacheSpinner.addListener(SWT.Selection, e -> {
+			int similarity = codeCompletionSemanticCacheSpinner.getSelection();
+			int minimum = ContextAwareCompletionConfig.MIN_SEMANTIC_CACHE_SIMILARITY;
+			if (similarity > 0 && similarity < minimum) {
+				codeCompletionSemanticCacheSpinner.setSelection(similarity == minimum - 1 ? 0 : minimum);
+			}
+		});
+
 		// <----- "Identifier Suggestion" group
 		Group identifierSuggestionGroup = new Group(advancedOptions, SWT.NONE);
 		identifierSuggestionGroup.setText("Identifier Suggestion");
@@ -339,6 +389,32 @@ public class DslProfileDialog extends Dialog {
 		identifierSuggestionGenerationAttemptsSpinner = new Spinner(identifierSuggestionGroup, SWT.BORDER);
 		identifierSuggestionGenerationAttemptsSpinner.setMinimum(1);
 		identifierSuggestionGenerationAttemptsSpinner.setMaximum(100);
+
+		// <----- "Prompt Size" group
+		Group promptSizeGroup = new Group(advancedOptions, SWT.NONE);
+		promptSizeGroup.setText("Prompt Size");
+		promptSizeGroup.setLayout(new GridLayout(2, false));
+		promptSizeGroup.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 2, 1));
+
+		Label grammarTokenBudgetLabel = new Label(promptSizeGroup, SWT.NONE);
+		grammarTokenBudgetLabel.setText("Grammar Token Budget:");
+		grammarTokenBudgetLabel.setToolTipText(
+				"Maximum number of tokens of the grammar sent to the LLM. Bigger grammars are reduced to the rules relevant at the cursor. Use 0 to always send the whole grammar.");
+
+		grammarTokenBudgetSpinner = new Spinner(promptSizeGroup, SWT.BORDER);
+		grammarTokenBudgetSpinner.setMinimum(0);
+		grammarTokenBudgetSpinner.setMaximum(200000);
+		grammarTokenBudgetSpinner.setIncrement(500);
+
+		Label contextTokenBudgetLabel = new Label(promptSizeGroup, SWT.NONE);
+		contextTokenBudgetLabel.setText("Context Token Budget:");
+		contextTokenBudgetLabel.setToolTipText(
+				"Maximum number of tokens of the edited code sent to the LLM. Bigger documents are reduced to the elements around the cursor. Use 0 to always send the whole document.");
+
+		contextTokenBudgetSpinner = new Spinner(promptSizeGroup, SWT.BORDER);
+		contextTokenBudgetSpinner.setMinimum(0);
+		contextTokenBudgetSpinner.setMaximum(200000);
+		contextTokenBudgetSpinner.setIncrement(500);
 	}
 
 	private void loadContents() {
@@ -381,18 +457,32 @@ public class DslProfileDialog extends Dialog {
 			codeCompletionFewShotText.setText(codeCompletionConfig.getFewShotPrompt());
 			codeCompletionFixAttemptsSpinner.setSelection(codeCompletionConfig.getMaxFixAttempts());
 			codeCompletionGenerationAttemptsSpinner.setSelection(codeCompletionConfig.getMaxGenerationAttempts());
+			codeCompletionFanOutSpinner.setSelection(codeCompletionConfig.getMaxSpeculativeFanOut());
+			codeCompletionLatencyBudgetSpinner.setSelection(codeCompletionConfig.getLatencyBudgetMillis());
+			codeCompletionAdaptiveDegradationCheck.setSelection(codeCompletionConfig.isAdaptiveDegradation());
+			codeCompletionSemanticCacheSpinner.setSelection(codeCompletionConfig.getSemanticCacheSimilarity());
 
 			IdentifierSuggestionConfig identifierSuggestionConfig = original.getIdentifierSuggestionConfig();
 			identifierSuggestionFewShotText.setText(identifierSuggestionConfig.getFewShotPrompt());
 			identifierSuggestionGenerationAttemptsSpinner
 					.setSelection(identifierSuggestionConfig.getMaxGenerationAttempts());
+
+			grammarTokenBudgetSpinner.setSelection(original.getGrammarTokenBudget());
+			contextTokenBudgetSpinner.setSelection(original.getContextTokenBudget());
 		} else {
 			codeCompletionFewShotText.setText(ContextAwareCompletionConfig.DEFAULT_FEW_SHOT_PROMPT);
 			codeCompletionFixAttemptsSpinner.setSelection(2);
 			codeCompletionGenerationAttemptsSpinner.setSelection(1);
+			codeCompletionFanOutSpinner.setSelection(1);
+			codeCompletionLatencyBudgetSpinner.setSelection(0);
+			codeCompletionAdaptiveDegradationCheck.setSelection(false);
+			codeCompletionSemanticCacheSpinner.setSelection(0);
 
 			identifierSuggestionFewShotText.setText(IdentifierSuggestionConfig.DEFAULT_FEW_SHOT_PROMPT);
 			identifierSuggestionGenerationAttemptsSpinner.setSelection(1);
+
+			grammarTokenBudgetSpinner.setSelection(0);
+			contextTokenBudgetSpinner.setSelection(0);
 		}
 	}
 
@@ -462,6 +552,14 @@ public class DslProfileDialog extends Dialog {
 			return;
 		}
 
+		int semanticCacheSimilarity = codeCompletionSemanticCacheSpinner.getSelection();
+		if (semanticCacheSimilarity > 0
+				&& semanticCacheSimilarity < ContextAwareCompletionConfig.MIN_SEMANTIC_CACHE_SIMILARITY) {
+			showError(String.format("The reuse similarity must be 0 to disable it, or at least %d.",
+					ContextAwareCompletionConfig.MIN_SEMANTIC_CACHE_SIMILARITY));
+			return;
+		}
+
 		// Save values
 		ExternalFile xtextFile;
 		if (original != null && !original.getXtextFile().getSourcePath().equals(xtextFilePath)) {
@@ -473,6 +571,8 @@ public class DslProfileDialog extends Dialog {
 		result = new DslProfile(name, fileExtension, xtextFile);
 		result.setDescription(description);
 		result.setStandaloneSetupClass(standaloneSetup);
+		result.setGrammarTokenBudget(grammarTokenBudgetSpinner.getSelection());
+		result.setContextTokenBudget(contextTokenBudgetSpinner.getSelection());
 		result.setScriptExamples(examples);
 		if (original != null)
 			result.setEmbeddingManager(original.getEmbeddingManager());
@@ -481,6 +581,10 @@ public class DslProfileDialog extends Dialog {
 		codeCompletionConfig.setFewShotPrompt(codeCompletionFewShotPrompt);
 		codeCompletionConfig.setMaxFixAttempts(codeCompletionFixAttemptsSpinner.getSelection());
 		codeCompletionConfig.setMaxGenerationAttempts(codeCompletionGenerationAttemptsSpinner.getSelection());
+		codeCompletionConfig.setMaxSpeculativeFanOut(codeCompletionFanOutSpinner.getSelection());
+		codeCompletionConfig.setLatencyBudgetMillis(codeCompletionLatencyBudgetSpinner.getSelection());
+		codeCompletionConfig.setAdaptiveDegradation(codeCompletionAdaptiveDegradationCheck.getSelection());
+		codeCompletionConfig.setSemanticCacheSimilarity(semanticCacheSimilarity);
 		IdentifierSuggestionConfig identifierSuggestionConfig = result.getIdentifierSuggestionConfig();
 		identifierSuggestionConfig.setFewShotPrompt(identifierSuggestionFewShotPrompt);
 		identifierSuggestionConfig.setMaxGenerationAttempts(identifierSuggestionGenerationAttemptsSpinner.getSelection());
@@ -22,5 +22,7 @@ public class HintForgePreferenceInitializer extends AbstractPreferenceInitialize
         store.setDefault("API_KEY", "");
         
         store.setDefault("DSL_PROFILES", "[]");
+        
+        store.setDefault("PERSIST_RESPONSE_CACHE", false);
     }
 }
\ No newline at end of file
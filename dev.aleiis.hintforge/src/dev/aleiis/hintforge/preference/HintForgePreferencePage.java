@@ -34,12 +34,15 @@ import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
 import dev.aleiis.hintforge.Activator;
+import dev.aleiis.hintforge.assistant.EmbeddingCache;
+import dev.aleiis.hintforge.assistant.ResponseCache;
 import dev.aleiis.hintforge.model.DslProfile;
 import dev.langchain4j.model.openai.OpenAiChatModelName;
 
 public class HintForgePreferencePage extends PreferencePage implements IWorkbenchPreferencePage {
 
 	private Text homeFolderText;
+	private Button persistResponseCacheButton;
 
 	private Text apiKeyText;
 	private Combo modelCombo;
@@ -114,7 +117,19 @@ public class HintForgePreferencePage extends PreferencePage implements IWorkbenc
 		note.setText("Note: Restore Defaults does not affect the Home Folder setting.");
 		note.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 4, 1));
 
+		persistResponseCacheButton = new Button(group, SWT.CHECK);
+		persistResponseCacheButton.setText("Keep cached responses in the Home Folder across restarts");
+		persistResponseCacheButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 3, 1));
+
+		Button clearCacheButton = new Button(group, SWT.PUSH);
+		clearCacheButton.setText("Clear Cache");
+		clearCacheButton.addListener(SWT.Selection, event -> {
+			ResponseCache.getInstance().clear();
+			EmbeddingCache.getInstance().clear();
+		});
+
 		homeFolderText.setText(preferenceManager.getHomeFolder().toString());
+		persistResponseCacheButton.setSelection(preferenceManager.isResponseCachePersistent());
 	}
 
 	private void addLlmApiGroup(Composite parent) {
@@ -257,6 +272,7 @@ public class HintForgePreferencePage extends PreferencePage implements IWorkbenc
 		}
 				
 		preferenceManager.setApiKey(apiKeyText.getText());
+		preferenceManager.setResponseCachePersistent(persistResponseCacheButton.getSelection());
 		
 		int selectedIndex = modelCombo.getSelectionIndex();
 		if (selectedIndex >= 0) {
@@ -275,6 +291,7 @@ public class HintForgePreferencePage extends PreferencePage implements IWorkbenc
 	@Override
 	protected void performDefaults() {
 		apiKeyText.setText(store.getDefaultString("API_KEY"));
+		persistResponseCacheButton.setSelection(store.getDefaultBoolean("PERSIST_RESPONSE_CACHE"));
 		selectModelComboValue(store.getDefaultString("MODEL_NAME"));
 
 		String dslProfilesJson = store.getDefaultString("DSL_PROFILES");
@@ -14,6 +14,8 @@ import java.util.stream.Stream;
 import org.eclipse.jface.preference.IPreferenceStore;
 
 import dev.aleiis.hintforge.Activator;
+import dev.aleiis.hintforge.assistant.AssistantServiceCache;
+import dev.aleiis.hintforge.assistant.ResponseCache;
 import dev.aleiis.hintforge.model.DslProfile;
 import dev.aleiis.hintforge.model.EmbeddingManager;
 import dev.aleiis.hintforge.model.ExternalFile;
@@ -39,6 +41,7 @@ public class PreferenceManager {
 		this.store = store;
 		this.homeFolder = homeFolder;
 		this.isHomeFolderAvailable = checkHomeFolder(homeFolder);
+		configureResponseCache();
 	}
 
 	public static synchronized PreferenceManager getInstance(IPreferenceStore store, Path homeFolder) {
@@ -185,6 +188,7 @@ public class PreferenceManager {
 		this.homeFolder = newHomeFolder;
 		store.setValue("HOME_FOLDER", newHomeFolder.toString());
 		this.isHomeFolderAvailable = true;
+		configureResponseCache();
 		return true;
 	}
 
@@ -194,6 +198,7 @@ public class PreferenceManager {
 
 	public void setApiKey(String apiKey) {
 		store.setValue("API_KEY", apiKey);
+		AssistantServiceCache.getInstance().invalidate();
 	}
 
 	public String getModelName() {
@@ -202,6 +207,27 @@ public class PreferenceManager {
 
 	public void setModelName(String modelName) {
 		store.setValue("MODEL_NAME", modelName);
+		AssistantServiceCache.getInstance().invalidate();
+	}
+
+	public boolean isResponseCachePersistent() {
+		return store.getBoolean("PERSIST_RESPONSE_CACHE");
+	}
+
+	/**
+	 * Sets whether the responses of the assistants are also cached in the home
+	 * folder, so they survive IDE restarts.
+	 */
+	public void setResponseCachePersistent(boolean persistent) {
+		store.setValue("PERSIST_RESPONSE_CACHE", persistent);
+		configureResponseCache();
+	}
+
+	private void configureResponseCache() {
+		Path folder = isHomeFolderAvailable && isResponseCachePersistent()
+				? homeFolder.resolve("cache").resolve("responses")
+				: null;
+		ResponseCache.getInstance().setDiskFolder(folder);
 	}
 
 	public DslProfile[] getDslProfiles() {
@@ -253,6 +279,7 @@ public class PreferenceManager {
 		}
 
 		store.setValue("DSL_PROFILES", DslProfile.toJson(profiles));
+		AssistantServiceCache.getInstance().invalidate();
 	}
 
 	private void syncFilesWithFolder(List<? extends ExternalFile> files, Path folder) throws IOException {
@@ -0,0 +1,54 @@
+package dev.aleiis.hintforge.utils;
+
+public class TextOverlap {
+
+	private TextOverlap() {
+	}
+
+	/**
+	 * Finds the longest suffix of a text range that is also a prefix of a pattern
+	 * range, in linear time (Knuth-Morris-Pratt). The characters are read in place,
+	 * only the failure table of the pattern is allocated.
+	 *
+	 * @param text         the text whose suffix is matched
+	 * @param textStart    start of the text range (inclusive)
+	 * @param textEnd      end of the text range (exclusive)
+	 * @param pattern      the text whose prefix is matched
+	 * @param patternStart start of the pattern range (inclusive)
+	 * @param patternEnd   end of the pattern range (exclusive)
+	 * @return the length of the overlap
+	 */
+	public static int suffixPrefixOverlap(CharSequence text, int textStart, int textEnd, CharSequence pattern,
+			int patternStart, int patternEnd) {
+		// The overlap cannot be longer than the shortest range, so only the last
+		// `length` characters of the text need to be scanned.
+		int length = Math.min(textEnd - textStart, patternEnd - patternStart);
+		if (length <= 0) {
+			return 0;
+		}
+
+		int[] failure = new int[length];
+		for (int i = 1, k = 0; i < length; i++) {
+			char c = pattern.charAt(patternStart + i);
+			while (k > 0 && pattern.charAt(patternStart + k) != c) {
+				k = failure[k - 1];
+			}
+			if (pattern.charAt(patternStart + k) == c) {
+				k++;
+			}
+			failure[i] = k;
+		}
+
+		int matched = 0;
+		for (int i = textEnd - length; i < textEnd; i++) {
+			char c = text.charAt(i);
+			while (matched > 0 && pattern.charAt(patternStart + matched) != c) {
+				matched = failure[matched - 1];
+			}
+			if (pattern.charAt(patternStart + matched) == c) {
+				matched++;
+			}
+		}
+		return matched;
+	}
+}
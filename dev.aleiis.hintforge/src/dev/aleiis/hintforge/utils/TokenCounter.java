@@ -0,0 +1,69 @@
+package dev.aleiis.hintforge.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+
+public class TokenCounter {
+
+	private static EncodingRegistry registry;
+	private static Encoding encoding;
+
+	private static final Map<String, Encoding> modelEncodings = new ConcurrentHashMap<>();
+
+	/**
+	 * Counts the tokens of a text with the o200k_base encoding used by the GPT-4o
+	 * family of models.
+	 *
+	 * @param text the text to measure
+	 * @return the number of tokens of the text
+	 */
+	public static int count(String text) {
+		if (text == null || text.isEmpty()) {
+			return 0;
+		}
+		return getEncoding().countTokensOrdinary(text);
+	}
+
+	/**
+	 * Counts the tokens of a text with the encoding of the given model, such as
+	 * cl100k_base for text-embedding-3-small. Unknown models fall back to
+	 * o200k_base.
+	 *
+	 * @param text      the text to measure
+	 * @param modelName the name of the model the text is sent to
+	 * @return the number of tokens of the text
+	 */
+	public static int count(String text, String modelName) {
+		if (text == null || text.isEmpty()) {
+			return 0;
+		}
+		return getEncoding(modelName).countTokensOrdinary(text);
+	}
+
+	private static synchronized EncodingRegistry getRegistry() {
+		if (registry == null) {
+			registry = Encodings.newLazyEncodingRegistry();
+		}
+		return registry;
+	}
+
+	private static synchronized Encoding getEncoding() {
+		if (encoding == null) {
+			encoding = getRegistry().getEncoding(EncodingType.O200K_BASE);
+		}
+		return encoding;
+	}
+
+	private static Encoding getEncoding(String modelName) {
+		if (modelName == null) {
+			return getEncoding();
+		}
+		return modelEncodings.computeIfAbsent(modelName,
+				name -> getRegistry().getEncodingForModel(name).orElseGet(TokenCounter::getEncoding));
+	}
+}